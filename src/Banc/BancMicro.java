@@ -0,0 +1,385 @@
+package Banc;
+
+import Modele.Coup;
+import Modele.GenerateurTours;
+import Modele.Jeu;
+import Modele.JeuCompact;
+import Modele.ListeTours;
+import Modele.Piece;
+import Modele.Plateau;
+import Network.GameStateParser;
+import Network.IAminimax;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Micro-bancs des chemins chauds du modèle, de l'IA et du protocole : copie
+ * de Jeu, getCoupPossibles, appliquerCoup pour chaque type de coup,
+ * heuristique, coupIA à chaque difficulté, getGameStateAsString et
+ * GameStateParser, sur les positions de {@link Positions}.
+ *
+ * Chaque banc suit le déroulement de JMH en mode débit : des itérations de
+ * chauffe puis des itérations mesurées d'une durée fixe, chacune faisant
+ * autant d'opérations que possible. Les opérations sont faites par lots ; la
+ * préparation d'un lot (copies des jeux sur lesquels on joue un coup, par
+ * exemple) n'est pas mesurée. Pour chaque banc, on mesure les opérations par
+ * seconde avec leur intervalle de confiance à 99,9 %, les octets alloués par
+ * opération (allocations du thread, comme gc.alloc.rate.norm du profileur GC
+ * de JMH) et le nombre de passages du ramasse-miettes.
+ *
+ * Les résultats sont écrits en JSON dans le format de JMH (-rf json), pour
+ * pouvoir comparer les versions avec les mêmes outils.
+ *
+ * Usage : java Banc.BancMicro [-wi chauffe] [-i mesures] [-r ms] [-rff
+ * resultats.json] [filtre]
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class BancMicro {
+
+    private static final long GRAINE = 42;
+
+    // Quantiles de Student à 99,95 % (intervalle bilatéral à 99,9 %), par
+    // nombre de degrés de liberté
+    private static final double[] STUDENT = {
+        Double.NaN, 636.62, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+        4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850
+    };
+
+    // Résultat des opérations, pour que la JVM ne puisse pas les supprimer
+    private static volatile int puits;
+
+    /**
+     * Un banc : executer(i) est l'opération mesurée, sur le i-ème élément du
+     * lot préparé par preparer
+     */
+    private abstract static class Mesure {
+
+        final String nom;
+        final int lot;
+
+        Mesure(String nom, int lot) {
+            this.nom = nom;
+            this.lot = lot;
+        }
+
+        // Hors mesure, avant chaque lot
+        void preparer() {
+        }
+
+        abstract int executer(int i);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int chauffe = 3;
+        int mesures = 5;
+        long dureeMs = 1000;
+        String fichier = "banc-micro.json";
+        Pattern filtre = null;
+        for (int a = 0; a < args.length; a++) {
+            switch (args[a]) {
+                case "-wi":
+                    chauffe = Integer.parseInt(args[++a]);
+                    break;
+                case "-i":
+                    mesures = Integer.parseInt(args[++a]);
+                    break;
+                case "-r":
+                    dureeMs = Long.parseLong(args[++a]);
+                    break;
+                case "-rff":
+                    fichier = args[++a];
+                    break;
+                default:
+                    filtre = Pattern.compile(args[a]);
+                    break;
+            }
+        }
+
+        // Le modèle et le parseur écrivent beaucoup sur la sortie standard
+        PrintStream sortie = System.out;
+        PrintStream muet = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(muet);
+        List<Mesure> bancs = creerBancs();
+        System.setOut(sortie);
+
+        StringBuilder json = new StringBuilder("[\n");
+        System.out.printf("%-40s %16s %12s %14s %6s%n", "Banc", "ops/s", "± (99,9 %)", "octets/op", "GC");
+        for (Mesure banc : bancs) {
+            if (filtre != null && !filtre.matcher(banc.nom).find()) {
+                continue;
+            }
+            System.setOut(muet);
+            double[][] resultat = mesurer(banc, chauffe, mesures, dureeMs);
+            System.setOut(sortie);
+
+            double[] debits = resultat[0];
+            double[] octets = resultat[1];
+            long gc = (long) resultat[2][0];
+            double debit = moyenne(debits);
+            double erreur = erreur(debits);
+            System.out.printf(Locale.ROOT, "%-40s %16.1f %12.1f %14.1f %6d%n", banc.nom, debit, erreur, moyenne(octets), gc);
+
+            if (json.length() > 2) {
+                json.append(",\n");
+            }
+            json.append("    {\n");
+            json.append("        \"benchmark\" : \"").append(BancMicro.class.getName()).append('.').append(banc.nom).append("\",\n");
+            json.append("        \"mode\" : \"thrpt\",\n");
+            json.append("        \"threads\" : 1,\n");
+            json.append("        \"forks\" : 0,\n");
+            json.append("        \"jvm\" : \"").append(echapper(System.getProperty("java.home"))).append("\",\n");
+            json.append("        \"jdkVersion\" : \"").append(System.getProperty("java.version")).append("\",\n");
+            json.append("        \"warmupIterations\" : ").append(chauffe).append(",\n");
+            json.append("        \"warmupTime\" : \"").append(dureeMs).append(" ms\",\n");
+            json.append("        \"measurementIterations\" : ").append(mesures).append(",\n");
+            json.append("        \"measurementTime\" : \"").append(dureeMs).append(" ms\",\n");
+            json.append("        \"primaryMetric\" : ").append(metrique(debits, "ops/s", "        ")).append(",\n");
+            json.append("        \"secondaryMetrics\" : {\n");
+            json.append("            \"·gc.alloc.rate.norm\" : ").append(metrique(octets, "B/op", "            ")).append(",\n");
+            json.append("            \"·gc.count\" : ").append(metrique(new double[]{gc}, "counts", "            ")).append("\n");
+            json.append("        }\n");
+            json.append("    }");
+        }
+        json.append("\n]\n");
+        Files.write(Paths.get(fichier), json.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Résultats écrits dans " + fichier);
+        System.exit(0);
+    }
+
+    // Renvoie {débits par itération mesurée, octets par opération par
+    // itération, {passages du ramasse-miettes pendant les mesures}}
+    private static double[][] mesurer(Mesure banc, int chauffe, int mesures, long dureeMs) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        double[] debits = new double[mesures];
+        double[] octets = new double[mesures];
+        long gcAvant = 0;
+        int resultat = 0;
+        for (int iteration = -chauffe; iteration < mesures; iteration++) {
+            if (iteration == 0) {
+                gcAvant = passagesGC();
+            }
+            // L'itération dure dureeMs en tout, préparation comprise ; le débit
+            // ne compte que le temps des opérations
+            long finIteration = System.nanoTime() + dureeMs * 1000000L;
+            long duree = 0;
+            long alloue = 0;
+            long operations = 0;
+            while (operations == 0 || System.nanoTime() < finIteration) {
+                banc.preparer();
+                long alloueAvant = threads.getCurrentThreadAllocatedBytes();
+                long debut = System.nanoTime();
+                for (int i = 0; i < banc.lot; i++) {
+                    resultat += banc.executer(i);
+                }
+                duree += System.nanoTime() - debut;
+                alloue += threads.getCurrentThreadAllocatedBytes() - alloueAvant;
+                operations += banc.lot;
+            }
+            if (iteration >= 0) {
+                debits[iteration] = operations * 1e9 / duree;
+                octets[iteration] = (double) alloue / operations;
+            }
+        }
+        puits = resultat;
+        return new double[][]{debits, octets, {passagesGC() - gcAvant}};
+    }
+
+    private static long passagesGC() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static double moyenne(double[] valeurs) {
+        double somme = 0;
+        for (double v : valeurs) {
+            somme += v;
+        }
+        return somme / valeurs.length;
+    }
+
+    // Demi-largeur de l'intervalle de confiance à 99,9 % de la moyenne
+    private static double erreur(double[] valeurs) {
+        int n = valeurs.length;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double m = moyenne(valeurs);
+        double variance = 0;
+        for (double v : valeurs) {
+            variance += (v - m) * (v - m);
+        }
+        variance /= n - 1;
+        double t = n - 1 < STUDENT.length ? STUDENT[n - 1] : 3.291;
+        return t * Math.sqrt(variance / n);
+    }
+
+    private static String metrique(double[] valeurs, String unite, String marge) {
+        double m = moyenne(valeurs);
+        double e = erreur(valeurs);
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append(marge).append("    \"score\" : ").append(nombre(m)).append(",\n");
+        sb.append(marge).append("    \"scoreError\" : ").append(Double.isNaN(e) ? "\"NaN\"" : nombre(e)).append(",\n");
+        sb.append(marge).append("    \"scoreConfidence\" : [ ")
+                .append(Double.isNaN(e) ? "\"NaN\", \"NaN\"" : nombre(m - e) + ", " + nombre(m + e)).append(" ],\n");
+        sb.append(marge).append("    \"scoreUnit\" : \"").append(unite).append("\",\n");
+        sb.append(marge).append("    \"rawData\" : [ [ ");
+        for (int i = 0; i < valeurs.length; i++) {
+            sb.append(i > 0 ? ", " : "").append(nombre(valeurs[i]));
+        }
+        sb.append(" ] ]\n").append(marge).append('}');
+        return sb.toString();
+    }
+
+    private static String nombre(double v) {
+        return String.format(Locale.ROOT, "%.6f", v);
+    }
+
+    private static String echapper(String texte) {
+        return texte.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static List<Mesure> creerBancs() {
+        Jeu[] jeux = new Jeu[Positions.SUITE.length];
+        JeuCompact[] etats = new JeuCompact[jeux.length];
+        String[] textes = new String[jeux.length];
+        for (int i = 0; i < jeux.length; i++) {
+            jeux[i] = Positions.jeu(i);
+            etats[i] = new JeuCompact(jeux[i]);
+            textes[i] = jeux[i].getGameStateAsString();
+        }
+        List<Mesure> bancs = new ArrayList<>();
+
+        bancs.add(new Mesure("Jeu.copie", 256) {
+            @Override
+            int executer(int i) {
+                return new Jeu(jeux[i % jeux.length]).getEtape();
+            }
+        });
+
+        // Toutes les pièces du joueur courant sur son plateau
+        List<Jeu> jeuxPieces = new ArrayList<>();
+        List<Piece> pieces = new ArrayList<>();
+        for (Jeu jeu : jeux) {
+            for (Piece piece : jeu.getPlateauCourant().getPieces(jeu.getJoueurCourant())) {
+                jeuxPieces.add(jeu);
+                pieces.add(piece);
+            }
+        }
+        bancs.add(new Mesure("Jeu.getCoupPossibles", 256) {
+            @Override
+            int executer(int i) {
+                int k = i % pieces.size();
+                Jeu jeu = jeuxPieces.get(k);
+                return jeu.getCoupPossibles(jeu.getPlateauCourant(), pieces.get(k)).size();
+            }
+        });
+
+        for (Coup.TypeCoup type : Coup.TypeCoup.values()) {
+            // Les pièces pour lesquelles ce coup est possible
+            List<Jeu> sources = new ArrayList<>();
+            List<int[]> cases = new ArrayList<>();
+            for (int k = 0; k < pieces.size(); k++) {
+                Jeu jeu = jeuxPieces.get(k);
+                for (Coup coup : jeu.getCoupPossibles(jeu.getPlateauCourant(), pieces.get(k))) {
+                    if (coup.getTypeCoup() == type) {
+                        sources.add(jeu);
+                        cases.add(new int[]{pieces.get(k).getPosition().x, pieces.get(k).getPosition().y});
+                    }
+                }
+            }
+            if (sources.isEmpty()) {
+                System.err.println("Aucune position pour appliquerCoup " + type);
+                continue;
+            }
+            bancs.add(new Mesure("Jeu.appliquerCoup." + type, 64) {
+                final Jeu[] copies = new Jeu[lot];
+                final Coup[] coups = new Coup[lot];
+
+                @Override
+                void preparer() {
+                    for (int i = 0; i < lot; i++) {
+                        int k = i % sources.size();
+                        copies[i] = new Jeu(sources.get(k));
+                        Plateau plateau = copies[i].getPlateauCourant();
+                        coups[i] = new Coup(plateau.getPiece(cases.get(k)[0], cases.get(k)[1]), plateau, type);
+                    }
+                }
+
+                @Override
+                int executer(int i) {
+                    copies[i].appliquerCoup(coups[i]);
+                    return copies[i].getPlateauCourant().getNbBlancs();
+                }
+            });
+        }
+
+        for (int difficulte : new int[]{3, 5}) {
+            IAminimax ia = new IAminimax(difficulte, null);
+            bancs.add(new Mesure("IAminimax.heuristique." + (difficulte >= 5 ? "HARD" : "MEDIUM"), 256) {
+                @Override
+                int executer(int i) {
+                    return ia.evaluer(etats[i % etats.length]);
+                }
+            });
+        }
+
+        GenerateurTours generateur = new GenerateurTours();
+        ListeTours liste = new ListeTours();
+        bancs.add(new Mesure("GenerateurTours.generer", 256) {
+            @Override
+            int executer(int i) {
+                generateur.generer(etats[i % etats.length], liste);
+                return liste.taille();
+            }
+        });
+
+        for (int difficulte = 1; difficulte <= 5; difficulte++) {
+            IAminimax ia = new IAminimax(difficulte, null);
+            ia.setVerbeux(false);
+            ia.setGraine(GRAINE);
+            ia.setLivre(null); // on mesure la recherche
+            ia.setFinales(null);
+            bancs.add(new Mesure("IAminimax.coupIA.difficulte" + difficulte, 1) {
+                int suivante = 0;
+
+                @Override
+                int executer(int i) {
+                    Jeu jeu = jeux[suivante++ % jeux.length];
+                    return ia.coupIA(jeu).getQuatrieme().ordinal();
+                }
+            });
+        }
+
+        bancs.add(new Mesure("Jeu.getGameStateAsString", 256) {
+            @Override
+            int executer(int i) {
+                return jeux[i % jeux.length].getGameStateAsString().length();
+            }
+        });
+
+        Jeu cible = new Jeu();
+        bancs.add(new Mesure("GameStateParser.parseAndUpdateJeu", 256) {
+            @Override
+            int executer(int i) {
+                GameStateParser.parseAndUpdateJeu(cible, textes[i % textes.length]);
+                return cible.getEtape();
+            }
+        });
+        return bancs;
+    }
+}
@@ -0,0 +1,87 @@
+package Banc;
+
+import Modele.IAFields;
+import Modele.Jeu;
+import Modele.Piece;
+import Modele.Plateau;
+import Network.IAminimax;
+
+/**
+ * Mesure l'accélération de la recherche parallèle de IAminimax.
+ *
+ * Pour chaque profondeur, cherche toutes les positions de {@link Positions}
+ * en séquentiel puis en parallèle (deux fois, pour vérifier que le tour
+ * choisi ne dépend pas des threads, ce qui n'est garanti qu'en mode RACINE)
+ * et affiche les temps.
+ *
+ * Usage : java Banc.BancParallele [threads] [profondeurMax] [RACINE|LAZY_SMP]
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class BancParallele {
+
+    private static final long GRAINE = 42;
+    private static final long TEMPS_ILLIMITE = 3600000L;
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int profondeurMax = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        IAminimax.ModeParallele mode = args.length > 2 ? IAminimax.ModeParallele.valueOf(args[2]) : IAminimax.ModeParallele.RACINE;
+
+        Jeu[] jeux = new Jeu[Positions.SUITE.length];
+        for (int i = 0; i < jeux.length; i++) {
+            jeux[i] = Positions.jeu(i);
+        }
+
+        System.out.println("Threads : " + threads + ", mode : " + mode + ", positions : " + Positions.SUITE.length);
+        System.out.println("prof | séquentiel (ms) | parallèle (ms) | accélération | tours identiques");
+        for (int profondeur = 1; profondeur <= profondeurMax; profondeur++) {
+            long tempsSequentiel = 0;
+            long tempsParallele = 0;
+            int identiques = 0;
+            for (int i = 0; i < Positions.SUITE.length; i++) {
+                long debut = System.nanoTime();
+                chercher(jeux[i], profondeur, 1, mode);
+                tempsSequentiel += System.nanoTime() - debut;
+
+                debut = System.nanoTime();
+                String tour1 = chercher(jeux[i], profondeur, threads, mode);
+                tempsParallele += System.nanoTime() - debut;
+
+                String tour2 = chercher(jeux[i], profondeur, threads, mode);
+                if (tour1.equals(tour2)) {
+                    identiques++;
+                }
+            }
+            System.out.printf("%4d | %15d | %14d | %12.2f | %d/%d%n", profondeur,
+                    tempsSequentiel / 1000000L, tempsParallele / 1000000L,
+                    (double) tempsSequentiel / Math.max(1, tempsParallele),
+                    identiques, Positions.SUITE.length);
+        }
+        System.exit(0);
+    }
+
+    // Cherche une position avec une IA neuve et renvoie le tour choisi
+    private static String chercher(Jeu position, int profondeur, int threads, IAminimax.ModeParallele mode) {
+        Jeu jeu = new Jeu(position);
+        IAminimax ia = new IAminimax(5, jeu);
+        ia.setVerbeux(false);
+        ia.setGraine(GRAINE);
+        ia.setLivre(null); // on mesure la recherche
+        ia.setFinales(null);
+        ia.setLimites(profondeur, TEMPS_ILLIMITE);
+        ia.setModeParallele(mode);
+        ia.setThreads(threads);
+        return decrire(ia.coupIA(jeu));
+    }
+
+    static String decrire(IAFields<Piece, String, String, Plateau.TypePlateau> tour) {
+        if (tour == null) {
+            return "aucun";
+        }
+        String piece = tour.getPremier() == null ? "null"
+                : "(" + tour.getPremier().getPosition().x + "," + tour.getPremier().getPosition().y + ")";
+        return piece + " " + tour.getSecond() + " " + tour.getTroisieme() + " " + tour.getQuatrieme();
+    }
+}
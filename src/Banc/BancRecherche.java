@@ -0,0 +1,74 @@
+package Banc;
+
+import Modele.IAFields;
+import Modele.Jeu;
+import Modele.Piece;
+import Modele.Plateau;
+import Network.IAminimax;
+
+/**
+ * Compare le nombre de noeuds et le temps de recherche de IAminimax sans et
+ * avec PVS (fenêtres nulles et fenêtres d'aspiration), à profondeur fixe, sur
+ * les positions de {@link Positions}.
+ *
+ * Usage : java Banc.BancRecherche [profondeur]
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class BancRecherche {
+
+    private static final long GRAINE = 42;
+    private static final long TEMPS_ILLIMITE = 3600000L;
+
+    public static void main(String[] args) {
+        int profondeur = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+
+        Jeu[] jeux = new Jeu[Positions.SUITE.length];
+        for (int i = 0; i < jeux.length; i++) {
+            jeux[i] = Positions.jeu(i);
+        }
+        // Première passe pour que la JVM compile la recherche avant les mesures
+        for (Jeu jeu : jeux) {
+            chercher(jeu, Math.min(profondeur, 4), true);
+        }
+
+        System.out.println("Profondeur " + profondeur);
+        System.out.println("pos | sans PVS : noeuds      ms | avec PVS : noeuds      ms | tour");
+        long[] totaux = new long[4];
+        for (int i = 0; i < jeux.length; i++) {
+            long[] sans = chercher(jeux[i], profondeur, false);
+            long[] avec = chercher(jeux[i], profondeur, true);
+            totaux[0] += sans[0];
+            totaux[1] += sans[1];
+            totaux[2] += avec[0];
+            totaux[3] += avec[1];
+            System.out.printf("%3d | %17d %7d | %17d %7d | %s%n", i, sans[0], sans[1], avec[0], avec[1],
+                    dernierTour);
+        }
+        System.out.printf("tot | %17d %7d | %17d %7d | noeuds x%.2f, temps x%.2f%n", totaux[0], totaux[1],
+                totaux[2], totaux[3], (double) totaux[2] / Math.max(1, totaux[0]),
+                (double) totaux[3] / Math.max(1, totaux[1]));
+        System.exit(0);
+    }
+
+    private static String dernierTour;
+
+    // Renvoie {noeuds, ms}
+    private static long[] chercher(Jeu position, int profondeur, boolean pvs) {
+        Jeu jeu = new Jeu(position);
+        IAminimax ia = new IAminimax(5, jeu);
+        ia.setVerbeux(false);
+        ia.setGraine(GRAINE);
+        ia.setLivre(null); // on mesure la recherche
+        ia.setFinales(null);
+        ia.setLimites(profondeur, TEMPS_ILLIMITE);
+        ia.setThreads(1);
+        ia.setPVS(pvs);
+        long debut = System.nanoTime();
+        IAFields<Piece, String, String, Plateau.TypePlateau> tour = ia.coupIA(jeu);
+        long ms = (System.nanoTime() - debut) / 1000000L;
+        dernierTour = BancParallele.decrire(tour);
+        return new long[]{ia.getNoeuds(), ms};
+    }
+}
@@ -0,0 +1,214 @@
+package Banc;
+
+import Modele.GenerateurTours;
+import Modele.JeuCompact;
+import Modele.ListeTours;
+import Network.TableFinales;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Construit la table de finales de IAminimax ({@link TableFinales}) par
+ * analyse rétrograde.
+ *
+ * Chaque passe parcourt les positions encore sans valeur et joue tous leurs
+ * tours : un tour qui gagne tout de suite (même condition qu'une vraie
+ * partie, voir {@link Tournoi#vainqueur}) donne un gain en 1, une position
+ * perdue en n pour l'adversaire donne un gain en n + 1. Si tous les tours
+ * mènent à une position gagnée par l'adversaire, la position est perdue, en
+ * autant de tours que la plus longue de ces défenses, plus un. Un tour qui
+ * sort de la table (clone, pièce prise) ne donne rien : la position n'est
+ * gagnée que si un autre tour gagne, et jamais perdue. Les passes s'arrêtent
+ * quand plus rien ne change ; ce qui reste vaut 0.
+ *
+ * Une passe ne lit que les valeurs des passes précédentes : les positions
+ * sont réparties par morceaux sur les threads, chacun garde ses décisions,
+ * et elles sont écrites à la fin de la passe. Le résultat ne dépend donc pas
+ * du nombre de threads, et une position décidée à la passe n l'est en
+ * exactement n tours.
+ *
+ * Usage : java Banc.GenererFinales [-clones max] [-j threads] [-sortie fichier]
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class GenererFinales {
+
+    private static final int MORCEAU = 1 << 16;
+    private static final int PASSES_MAX = 127; // valeurs rangées sur un octet
+
+    private final int clonesMax;
+    private final byte[] valeurs;
+
+    GenererFinales(int clonesMax) {
+        this.clonesMax = clonesMax;
+        this.valeurs = new byte[(int) TableFinales.taille(clonesMax)];
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int clonesMax = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path sortie = Paths.get(TableFinales.FICHIER_FINALES);
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-clones":
+                    clonesMax = Integer.parseInt(args[++i]);
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-sortie":
+                    sortie = Paths.get(args[++i]);
+                    break;
+                default:
+                    System.err.println("Option inconnue : " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        GenererFinales generateur = new GenererFinales(clonesMax);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long debut = System.nanoTime();
+        for (int passe = 1; passe <= PASSES_MAX; passe++) {
+            int decidees = generateur.passe(pool);
+            System.out.printf("Passe %d : %d positions décidées, %.1f s%n", passe, decidees, (System.nanoTime() - debut) / 1e9);
+            if (decidees == 0) {
+                break;
+            }
+        }
+        pool.shutdown();
+        generateur.resume();
+
+        TableFinales.ecrire(sortie, generateur.valeurs, clonesMax);
+        System.out.println(generateur.valeurs.length + " positions écrites dans " + sortie);
+        System.exit(0);
+    }
+
+    // Une passe sur toute la table
+    private int passe(ExecutorService pool) throws InterruptedException {
+        List<Future<Decisions>> futures = new ArrayList<>();
+        for (long debut = 0; debut < valeurs.length; debut += MORCEAU) {
+            long d = debut;
+            long f = Math.min(valeurs.length, debut + MORCEAU);
+            futures.add(pool.submit(() -> analyser(d, f)));
+        }
+        List<Decisions> morceaux = new ArrayList<>();
+        for (Future<Decisions> future : futures) {
+            try {
+                morceaux.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Erreur pendant une passe", e.getCause());
+            }
+        }
+        // Tous les morceaux sont finis avant d'écrire
+        int decidees = 0;
+        for (Decisions decisions : morceaux) {
+            for (int i = 0; i < decisions.taille; i++) {
+                valeurs[decisions.indices[i]] = decisions.valeurs[i];
+            }
+            decidees += decisions.taille;
+        }
+        return decidees;
+    }
+
+    // Décisions d'un morceau, écrites à la fin de la passe
+    private static final class Decisions {
+        int[] indices = new int[64];
+        byte[] valeurs = new byte[64];
+        int taille;
+
+        void ajouter(int indice, int valeur) {
+            if (taille == indices.length) {
+                indices = java.util.Arrays.copyOf(indices, taille * 2);
+                valeurs = java.util.Arrays.copyOf(valeurs, taille * 2);
+            }
+            indices[taille] = indice;
+            valeurs[taille++] = (byte) valeur;
+        }
+    }
+
+    private Decisions analyser(long debut, long fin) {
+        Decisions decisions = new Decisions();
+        JeuCompact etat = new JeuCompact();
+        GenerateurTours generateur = new GenerateurTours();
+        ListeTours tours = new ListeTours();
+        for (long i = debut; i < fin; i++) {
+            if (valeurs[(int) i] != 0 || !TableFinales.position(i, clonesMax, etat)) {
+                continue;
+            }
+            int valeur = valeur(etat, generateur, tours);
+            if (valeur != 0) {
+                decisions.ajouter((int) i, valeur);
+            }
+        }
+        return decisions;
+    }
+
+    // Valeur d'une position d'après les passes précédentes, 0 si elle n'est
+    // pas encore décidée
+    private int valeur(JeuCompact etat, GenerateurTours generateur, ListeTours tours) {
+        int joueur = etat.getJoueurCourant();
+        generateur.generer(etat, tours);
+        boolean perdue = !tours.estVide();
+        int plusCourtGain = Integer.MAX_VALUE;
+        int plusLongueDefense = 0;
+        for (int k = 0; k < tours.taille(); k++) {
+            etat.makeMove(tours.get(k));
+            int gagnant = Tournoi.vainqueur(etat, joueur);
+            int suivante = 0; // valeur de la position suivante pour l'adversaire
+            if (gagnant == 0) {
+                long indice = TableFinales.indice(etat, clonesMax);
+                suivante = indice < 0 ? 0 : valeurs[(int) indice] & 0xFF;
+            }
+            etat.unmakeMove();
+            if (gagnant == joueur) {
+                return TableFinales.gain(1);
+            }
+            if (gagnant != 0) {
+                continue; // l'adversaire gagne tout de suite : perdu en 1
+            }
+            if (suivante == 0) {
+                perdue = false;
+            } else if (TableFinales.estGain(suivante)) {
+                plusLongueDefense = Math.max(plusLongueDefense, TableFinales.tours(suivante));
+            } else {
+                plusCourtGain = Math.min(plusCourtGain, TableFinales.tours(suivante) + 1);
+            }
+        }
+        if (plusCourtGain != Integer.MAX_VALUE) {
+            return TableFinales.gain(plusCourtGain);
+        }
+        return perdue ? TableFinales.perte(plusLongueDefense + 1) : 0;
+    }
+
+    // Répartition des valeurs
+    private void resume() {
+        long gains = 0;
+        long pertes = 0;
+        long nulles = 0;
+        int plusLong = 0;
+        JeuCompact etat = new JeuCompact();
+        for (long i = 0; i < valeurs.length; i++) {
+            int v = valeurs[(int) i] & 0xFF;
+            if (v == 0) {
+                if (TableFinales.position(i, clonesMax, etat)) {
+                    nulles++;
+                }
+            } else if (TableFinales.estGain(v)) {
+                gains++;
+            } else {
+                pertes++;
+            }
+            plusLong = Math.max(plusLong, TableFinales.tours(v));
+        }
+        System.out.printf("Gains : %d, pertes : %d, sans valeur : %d, plus longue fin : %d tours%n",
+                gains, pertes, nulles, plusLong);
+    }
+}
@@ -0,0 +1,190 @@
+package Banc;
+
+import Modele.GenerateurTours;
+import Modele.JeuCompact;
+import Modele.ListeTours;
+import Modele.Tour;
+import Network.IAminimax;
+import Network.LivreOuvertures;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Construit le livre d'ouvertures de IAminimax ({@link LivreOuvertures}).
+ *
+ * Depuis la position de départ, chaque position des premiers demi-coups est
+ * cherchée en profondeur : chaque tour possible reçoit le score exact de la
+ * position qui le suit, cherchée par une IA HARD à la profondeur demandée
+ * moins un. Les meilleurs tours (au plus "largeur", à moins de "marge" points
+ * du meilleur) entrent dans le livre avec un poids qui décroît avec l'écart :
+ * marge + 1 - écart. Les positions qu'ils atteignent sont cherchées au
+ * demi-coup suivant, une seule fois par position (une position et sa
+ * transposée n'en font qu'une, rangée sous son hash canonique). Les positions
+ * d'un même demi-coup sont réparties sur les threads, une IA par thread.
+ *
+ * La construction est longue (tous les tours de chaque position sont
+ * cherchés) : elle se fait une fois, et le livre est rangé avec le jeu.
+ *
+ * Usage : java Banc.GenererLivre [-demi-coups N] [-profondeur P] [-largeur L]
+ * [-marge points] [-j threads] [-sortie fichier]
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class GenererLivre {
+
+    private static final int MAT = 1000000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int demiCoups = 4;
+        int profondeur = 5;
+        int largeur = 3;
+        int marge = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path sortie = Paths.get(LivreOuvertures.FICHIER_LIVRE);
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-demi-coups":
+                    demiCoups = Integer.parseInt(args[++i]);
+                    break;
+                case "-profondeur":
+                    profondeur = Integer.parseInt(args[++i]);
+                    break;
+                case "-largeur":
+                    largeur = Integer.parseInt(args[++i]);
+                    break;
+                case "-marge":
+                    marge = Integer.parseInt(args[++i]);
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-sortie":
+                    sortie = Paths.get(args[++i]);
+                    break;
+                default:
+                    System.err.println("Option inconnue : " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        int p = profondeur;
+        ThreadLocal<IAminimax> ias = ThreadLocal.withInitial(() -> {
+            IAminimax ia = new IAminimax(5, null);
+            ia.setVerbeux(false);
+            ia.setLivre(null);
+            ia.setLimites(Math.max(1, p - 1), 24 * 3600 * 1000L); // seule la profondeur compte
+            return ia;
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Map<Long, ListeTours> livre = new HashMap<>();
+        Set<Long> vues = new HashSet<>();
+        List<JeuCompact> niveau = new ArrayList<>();
+        niveau.add(new JeuCompact());
+        vues.add(niveau.get(0).getHashCanonique());
+        long debut = System.nanoTime();
+
+        for (int d = 0; d < demiCoups && !niveau.isEmpty(); d++) {
+            List<Future<ListeTours>> futures = new ArrayList<>();
+            int l = largeur;
+            int m = marge;
+            for (JeuCompact position : niveau) {
+                futures.add(pool.submit(() -> analyser(ias.get(), position, l, m)));
+            }
+            List<JeuCompact> suivant = new ArrayList<>();
+            for (int i = 0; i < niveau.size(); i++) {
+                JeuCompact position = niveau.get(i);
+                ListeTours tours;
+                try {
+                    tours = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    System.err.println("Erreur pendant l'analyse d'une position : " + e.getCause());
+                    continue;
+                }
+                livre.put(position.getHashCanonique(), versCanonique(position, tours));
+                for (int k = 0; k < tours.taille(); k++) {
+                    JeuCompact apres = new JeuCompact(position);
+                    int joueur = apres.getJoueurCourant();
+                    apres.makeMove(tours.get(k));
+                    if (Tournoi.vainqueur(apres, joueur) == 0 && vues.add(apres.getHashCanonique())) {
+                        suivant.add(new JeuCompact(apres));
+                    }
+                }
+            }
+            System.out.printf("Demi-coup %d : %d positions, %.1f s%n", d + 1, niveau.size(), (System.nanoTime() - debut) / 1e9);
+            niveau = suivant;
+        }
+        pool.shutdown();
+
+        LivreOuvertures.ecrire(sortie, livre);
+        System.out.println(livre.size() + " positions écrites dans " + sortie);
+        System.exit(0);
+    }
+
+    // Tours d'une position dans le sens de sa forme canonique, comme le livre
+    // les range
+    private static ListeTours versCanonique(JeuCompact position, ListeTours tours) {
+        if (!position.estTransposee()) {
+            return tours;
+        }
+        ListeTours canoniques = new ListeTours();
+        for (int i = 0; i < tours.taille(); i++) {
+            canoniques.ajouter(Tour.transposer(tours.get(i)));
+            canoniques.setNote(i, tours.getNote(i));
+        }
+        return canoniques;
+    }
+
+    // Tours du livre d'une position, avec leur poids comme note
+    private static ListeTours analyser(IAminimax ia, JeuCompact position, int largeur, int marge) {
+        ListeTours tours = new ListeTours();
+        new GenerateurTours().generer(new JeuCompact(position), tours);
+        int joueur = position.getJoueurCourant();
+        for (int i = 0; i < tours.taille(); i++) {
+            JeuCompact apres = new JeuCompact(position);
+            apres.makeMove(tours.get(i));
+            int score;
+            int gagnant = Tournoi.vainqueur(apres, joueur);
+            if (gagnant != 0) {
+                score = gagnant == joueur ? MAT : -MAT;
+            } else if (ia.chercherTour(apres) < 0) {
+                score = -MAT; // l'adversaire n'a pas de tour : il a gagné
+            } else {
+                score = -ia.getScore();
+            }
+            tours.setNote(i, score);
+        }
+
+        int meilleur = Integer.MIN_VALUE;
+        for (int i = 0; i < tours.taille(); i++) {
+            meilleur = Math.max(meilleur, tours.getNote(i));
+        }
+        ListeTours choisis = new ListeTours();
+        for (int i = 0; i < tours.taille() && choisis.taille() < largeur; i++) {
+            tours.choisirSuivant(i);
+            int ecart = meilleur - tours.getNote(i);
+            if (ecart > marge) {
+                break;
+            }
+            choisis.ajouter(tours.get(i));
+            choisis.setNote(choisis.taille() - 1, marge + 1 - ecart);
+        }
+        StringBuilder sb = new StringBuilder("  " + Long.toHexString(position.getHash()) + " :");
+        for (int i = 0; i < choisis.taille(); i++) {
+            sb.append(' ').append(Tour.toString(choisis.get(i))).append(" (").append(choisis.getNote(i)).append(')');
+        }
+        System.out.println(sb);
+        return choisis;
+    }
+}
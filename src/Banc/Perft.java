@@ -0,0 +1,322 @@
+package Banc;
+
+import Modele.Coup;
+import Modele.GenerateurTours;
+import Modele.Jeu;
+import Modele.JeuCompact;
+import Modele.ListeTours;
+import Modele.Piece;
+import Modele.Plateau;
+import Modele.Tour;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compte les tours joués jusqu'à une profondeur donnée (perft), pour vérifier
+ * que les représentations du jeu ont les mêmes règles et mesurer leur vitesse.
+ *
+ * Chaque position est comptée avec le modèle objet ({@link Jeu},
+ * getCoupPossibles, appliquerCoup, choisirPlateau), tel que le jouent les
+ * clients, puis avec {@link JeuCompact} et {@link GenerateurTours} sans
+ * dédoublonnage, qui doivent donner exactement les mêmes nombres, y compris
+ * par type d'action. Le nombre de tours du générateur dédoublonné est affiché
+ * à titre indicatif. Une partie finie avant la profondeur demandée ne compte
+ * pas de tour.
+ *
+ * Les positions sont celles de {@link Positions}, dont la position de
+ * départ, et les fichiers .save donnés en argument (par défaut, ceux du
+ * dossier saves). Le programme se termine avec
+ * le code 1 si les deux représentations ne sont pas d'accord, ce qui permet
+ * de s'en servir avant d'accepter une modification des règles ou du
+ * générateur.
+ *
+ * Usage : java Banc.Perft [profondeur] [fichier.save ...]
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class Perft {
+
+    private static final int REPETITIONS = 3; // meilleur temps sur plusieurs comptages
+    private static final int SANS_ACTION = Coup.TypeCoup.values().length; // ligne "aucune" des décomptes
+
+    // Une façon de jouer les règles
+    private interface Representation {
+
+        String nom();
+
+        /**
+         * Compte les tours au bout de la profondeur
+         *
+         * @param decompte décompte des tours comptés par type d'action :
+         * [ordinal ou SANS_ACTION][0 pour la première action, 1 pour la
+         * seconde]
+         */
+        long compter(Jeu jeu, int profondeur, long[][] decompte);
+    }
+
+    public static void main(String[] args) {
+        int profondeur = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        List<String> noms = new ArrayList<>();
+        List<String> etats = new ArrayList<>();
+        for (int i = 0; i < Positions.SUITE.length; i++) {
+            noms.add(i == 0 ? "départ" : "suite " + i);
+            etats.add(Positions.SUITE[i]);
+        }
+        List<Path> fichiers = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            fichiers.add(Paths.get(args[i]));
+        }
+        if (args.length <= 1) {
+            fichiers.addAll(sauvegardes(Paths.get("saves")));
+        }
+        for (Path fichier : fichiers) {
+            String etat = lireSauvegarde(fichier);
+            if (etat != null) {
+                noms.add(fichier.getFileName().toString());
+                etats.add(etat);
+            }
+        }
+
+        Representation objet = new ModeleObjet();
+        Representation compact = new ModeleCompact(false);
+        Representation dedoublonne = new ModeleCompact(true);
+
+        // Le modèle objet écrit sur la sortie standard à chaque partie créée
+        PrintStream sortie = System.out;
+        PrintStream muet = new PrintStream(OutputStream.nullOutputStream());
+
+        boolean accord = true;
+        for (int i = 0; i < etats.size(); i++) {
+            System.setOut(muet);
+            Jeu jeu = Positions.depuisTexte(etats.get(i));
+            System.setOut(sortie);
+            System.out.println("Position " + noms.get(i) + " : " + etats.get(i));
+            System.out.println("prof | représentation         |        tours |  temps (ms) |  tours/s");
+            for (int p = 1; p <= profondeur; p++) {
+                long[][] decompteObjet = new long[SANS_ACTION + 1][2];
+                long[][] decompteCompact = new long[SANS_ACTION + 1][2];
+                System.setOut(muet);
+                long[] resultatObjet = mesurer(objet, jeu, p, decompteObjet);
+                long[] resultatCompact = mesurer(compact, jeu, p, decompteCompact);
+                long[] resultatDedoublonne = mesurer(dedoublonne, jeu, p, new long[SANS_ACTION + 1][2]);
+                System.setOut(sortie);
+                afficher(p, objet, resultatObjet);
+                afficher(p, compact, resultatCompact);
+                afficher(p, dedoublonne, resultatDedoublonne);
+
+                if (resultatObjet[0] != resultatCompact[0] || !Arrays.deepEquals(decompteObjet, decompteCompact)) {
+                    accord = false;
+                    System.out.println("     DIFFÉRENCE entre " + objet.nom() + " et " + compact.nom());
+                }
+                if (p == profondeur) {
+                    afficherDecompte(decompteObjet, decompteCompact);
+                }
+            }
+            System.out.println();
+        }
+        System.out.println(accord ? "Les représentations sont d'accord." : "Les représentations ne sont PAS d'accord.");
+        System.exit(accord ? 0 : 1);
+    }
+
+    // Compte plusieurs fois et garde le meilleur temps : {tours, nanosecondes}
+    private static long[] mesurer(Representation representation, Jeu jeu, int profondeur, long[][] decompte) {
+        long tours = 0;
+        long meilleur = Long.MAX_VALUE;
+        for (int k = 0; k < REPETITIONS; k++) {
+            long[][] essai = new long[decompte.length][2];
+            long debut = System.nanoTime();
+            tours = representation.compter(jeu, profondeur, essai);
+            meilleur = Math.min(meilleur, System.nanoTime() - debut);
+            if (k == 0) {
+                for (int a = 0; a < decompte.length; a++) {
+                    decompte[a][0] = essai[a][0];
+                    decompte[a][1] = essai[a][1];
+                }
+            }
+        }
+        return new long[]{tours, meilleur};
+    }
+
+    private static void afficher(int profondeur, Representation representation, long[] resultat) {
+        double secondes = Math.max(1, resultat[1]) / 1e9;
+        System.out.printf("%4d | %-22s | %12d | %11.1f | %8.0f%n", profondeur, representation.nom(),
+                resultat[0], resultat[1] / 1e6, resultat[0] / secondes);
+    }
+
+    private static void afficherDecompte(long[][] objet, long[][] compact) {
+        System.out.println("     action |  1re (objet) | 1re (compact) |  2e (objet) | 2e (compact)");
+        for (int a = 0; a <= SANS_ACTION; a++) {
+            String nom = a == SANS_ACTION ? "aucune" : Coup.TypeCoup.values()[a].name();
+            System.out.printf("     %-6s | %12d | %13d | %11d | %12d%n", nom, objet[a][0], compact[a][0], objet[a][1], compact[a][1]);
+        }
+    }
+
+    private static void compterActions(long[][] decompte, Coup.TypeCoup action1, Coup.TypeCoup action2) {
+        decompte[action1 == null ? SANS_ACTION : action1.ordinal()][0]++;
+        decompte[action2 == null ? SANS_ACTION : action2.ordinal()][1]++;
+    }
+
+    private static List<Path> sauvegardes(Path dossier) {
+        List<Path> fichiers = new ArrayList<>();
+        if (!Files.isDirectory(dossier)) {
+            return fichiers;
+        }
+        try (DirectoryStream<Path> contenu = Files.newDirectoryStream(dossier, "*.save")) {
+            for (Path fichier : contenu) {
+                fichiers.add(fichier);
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur de lecture du dossier " + dossier + " : " + e.getMessage());
+        }
+        fichiers.sort(null);
+        return fichiers;
+    }
+
+    // La ligne de données d'une sauvegarde, au format de Jeu.getGameStateAsString
+    private static String lireSauvegarde(Path fichier) {
+        try {
+            for (String ligne : Files.readAllLines(fichier, StandardCharsets.UTF_8)) {
+                if (ligne.trim().startsWith("etapeCoup:")) {
+                    return ligne.trim();
+                }
+            }
+            System.err.println("Pas de données de jeu dans " + fichier);
+        } catch (IOException e) {
+            System.err.println("Erreur de lecture de " + fichier + " : " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Règles du modèle objet : chaque action est jouée sur une copie de Jeu,
+     * comme le faisait l'IA avant JeuCompact
+     */
+    private static class ModeleObjet implements Representation {
+
+        @Override
+        public String nom() {
+            return "Jeu";
+        }
+
+        @Override
+        public long compter(Jeu jeu, int profondeur, long[][] decompte) {
+            if (jeu.gameOver(jeu.getJoueurCourant()) != 0) {
+                return 0;
+            }
+            long tours = 0;
+            Plateau plateau = jeu.getPlateauCourant();
+            ArrayList<Piece> pieces = plateau.getPieces(jeu.getJoueurCourant());
+            if (pieces.isEmpty()) {
+                tours += finir(jeu, null, null, profondeur, decompte);
+            }
+            for (Piece piece : pieces) {
+                int lig = piece.getPosition().x;
+                int col = piece.getPosition().y;
+                for (Coup coup1 : jeu.getCoupPossibles(plateau, piece)) {
+                    Jeu apres1 = new Jeu(jeu);
+                    Piece piece1 = apres1.getPlateauCourant().getPiece(lig, col);
+                    apres1.appliquerCoup(new Coup(piece1, apres1.getPlateauCourant(), coup1.getTypeCoup()));
+
+                    // La pièce a pu disparaître (sortie du plateau, paradoxe)
+                    Plateau plateau1 = apres1.getPlateauCourant();
+                    int lig1 = piece1.getPosition().x;
+                    int col1 = piece1.getPosition().y;
+                    boolean presente = lig1 >= 0 && lig1 < plateau1.getSize() && col1 >= 0 && col1 < plateau1.getSize()
+                            && plateau1.getPiece(lig1, col1) == piece1;
+                    ArrayList<Coup> coups2 = presente ? apres1.getCoupPossibles(plateau1, piece1) : new ArrayList<>();
+                    if (coups2.isEmpty()) {
+                        tours += finir(apres1, coup1.getTypeCoup(), null, profondeur, decompte);
+                    }
+                    for (Coup coup2 : coups2) {
+                        Jeu apres2 = new Jeu(apres1);
+                        Piece piece2 = apres2.getPlateauCourant().getPiece(lig1, col1);
+                        apres2.appliquerCoup(new Coup(piece2, apres2.getPlateauCourant(), coup2.getTypeCoup()));
+                        tours += finir(apres2, coup1.getTypeCoup(), coup2.getTypeCoup(), profondeur, decompte);
+                    }
+                }
+            }
+            return tours;
+        }
+
+        // Choisit chacun des prochains plateaux possibles et passe au joueur suivant
+        private long finir(Jeu apresActions, Coup.TypeCoup action1, Coup.TypeCoup action2, int profondeur, long[][] decompte) {
+            long tours = 0;
+            Plateau.TypePlateau precedent = apresActions.getJoueurCourant().getProchainPlateau();
+            for (Plateau.TypePlateau prochain : Plateau.TypePlateau.values()) {
+                if (prochain == precedent) {
+                    continue;
+                }
+                if (profondeur == 1) {
+                    compterActions(decompte, action1, action2);
+                    tours++;
+                    continue;
+                }
+                Jeu suivant = new Jeu(apresActions);
+                suivant.choisirPlateau(prochain);
+                suivant.joueurSuivant();
+                suivant.majPlateauCourant();
+                tours += compter(suivant, profondeur - 1, decompte);
+            }
+            return tours;
+        }
+    }
+
+    /**
+     * Règles de l'état compact de l'IA, avec le générateur de tours et
+     * makeMove/unmakeMove
+     */
+    private static class ModeleCompact implements Representation {
+
+        private final boolean dedoublonnage;
+        private final List<GenerateurTours> generateurs = new ArrayList<>();
+        private final List<ListeTours> listes = new ArrayList<>();
+
+        ModeleCompact(boolean dedoublonnage) {
+            this.dedoublonnage = dedoublonnage;
+        }
+
+        @Override
+        public String nom() {
+            return dedoublonnage ? "JeuCompact dédoublonné" : "JeuCompact";
+        }
+
+        @Override
+        public long compter(Jeu jeu, int profondeur, long[][] decompte) {
+            while (generateurs.size() < profondeur) {
+                GenerateurTours generateur = new GenerateurTours();
+                generateur.setDedoublonnage(dedoublonnage);
+                generateurs.add(generateur);
+                listes.add(new ListeTours());
+            }
+            return compter(new JeuCompact(jeu), profondeur, decompte);
+        }
+
+        private long compter(JeuCompact etat, int profondeur, long[][] decompte) {
+            ListeTours tours = listes.get(profondeur - 1);
+            generateurs.get(profondeur - 1).generer(etat, tours);
+            if (profondeur == 1) {
+                for (int i = 0; i < tours.taille(); i++) {
+                    compterActions(decompte, Tour.action1(tours.get(i)), Tour.action2(tours.get(i)));
+                }
+                return tours.taille();
+            }
+            long total = 0;
+            for (int i = 0; i < tours.taille(); i++) {
+                etat.makeMove(tours.get(i));
+                total += compter(etat, profondeur - 1, decompte);
+                etat.unmakeMove();
+            }
+            return total;
+        }
+    }
+}
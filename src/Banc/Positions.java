@@ -0,0 +1,52 @@
+package Banc;
+
+import Modele.Jeu;
+import Network.GameStateParser;
+
+/**
+ * Suite fixe de positions utilisée par les outils de mesure de l'IA.
+ *
+ * Les positions sont écrites dans le format de Jeu.getGameStateAsString, le
+ * même que la ligne "Game Data" des sauvegardes.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public final class Positions {
+
+    public static final String[] SUITE = {
+        // Position de départ
+        "etapeCoup:0;JC:1;C1:4;C2:4;P1:PAST;P2:FUTURE;P:1000000000000002;PR:1000000000000002;F:1000000000000002;PC:null",
+        // Débuts de partie
+        "etapeCoup:0;JC:1;C1:4;C2:3;P1:PAST;P2:PAST;P:0000010000000022;PR:1000000000000020;F:0000010000200000;PC:null",
+        "etapeCoup:0;JC:1;C1:4;C2:3;P1:PAST;P2:FUTURE;P:0000010000000002;PR:1000000000000020;F:0000002000100020;PC:null",
+        "etapeCoup:0;JC:1;C1:4;C2:4;P1:PAST;P2:FUTURE;P:0000010000200000;PR:1000000000000002;F:0000010000200000;PC:null",
+        "etapeCoup:0;JC:1;C1:3;C2:3;P1:FUTURE;P2:FUTURE;P:0000010000000002;PR:1000000002000000;F:1000000000000020;PC:null",
+        // Milieux de partie
+        "etapeCoup:0;JC:1;C1:4;C2:3;P1:PAST;P2:PAST;P:0000000000120020;PR:1000000000020000;F:0000001200000000;PC:null",
+        "etapeCoup:0;JC:1;C1:4;C2:2;P1:PRESENT;P2:PAST;P:0010002000000000;PR:1000000000020000;F:0000001000020000;PC:null",
+        "etapeCoup:0;JC:2;C1:2;C2:3;P1:FUTURE;P2:FUTURE;P:0010100000000000;PR:1000000000000022;F:1000000010200020;PC:null",
+        "etapeCoup:0;JC:2;C1:2;C2:3;P1:PRESENT;P2:PRESENT;P:1000000000100002;PR:1000010000020002;F:1000000000020000;PC:null",
+        "etapeCoup:0;JC:1;C1:2;C2:3;P1:PRESENT;P2:PRESENT;P:0110000000200000;PR:0100100000000022;F:0000100000000200;PC:null",
+        "etapeCoup:0;JC:1;C1:3;C2:3;P1:PRESENT;P2:PAST;P:0010100000000002;PR:0000102000000000;F:1000000000200020;PC:null"
+    };
+
+    private Positions() {
+    }
+
+    /**
+     * Construit le jeu d'une position de la suite
+     *
+     * @param i indice dans SUITE
+     * @return un nouveau jeu dans cette position
+     */
+    public static Jeu jeu(int i) {
+        return depuisTexte(SUITE[i]);
+    }
+
+    public static Jeu depuisTexte(String etat) {
+        Jeu jeu = new Jeu();
+        GameStateParser.parseAndUpdateJeu(jeu, etat);
+        return jeu;
+    }
+}
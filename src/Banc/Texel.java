@@ -0,0 +1,320 @@
+package Banc;
+
+import Modele.JeuCompact;
+import Network.IAminimax;
+import Network.PoidsHeuristique;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Réglage des poids de l'heuristique de IAminimax par la méthode de Texel.
+ *
+ * Les positions viennent de journaux de parties écrits par {@link Tournoi}
+ * (option -journal). Chaque position est gardée avec les termes de
+ * l'heuristique du point de vue du joueur courant et le résultat final de la
+ * partie pour ce joueur (1, 1/2 ou 0). Les poids sont ceux qui minimisent
+ * l'erreur quadratique moyenne entre le résultat et sigmoïde(K * score) :
+ * K est d'abord ajusté sur les poids de départ, puis les poids sont réglés
+ * par descente de gradient (Adam), arrondis, et affinés entier par entier.
+ * Le poids du matériel reste fixe, pour garder l'échelle des scores (une
+ * pièce vaut 25, comme la fenêtre d'aspiration).
+ *
+ * Les positions sont rangées dans des tableaux d'entiers et l'erreur est
+ * calculée par morceaux sur plusieurs threads.
+ *
+ * Le résultat est écrit dans le fichier de profils que IAminimax lit au
+ * démarrage ({@link PoidsHeuristique#FICHIER_PROFILS} par défaut) ; à
+ * vérifier avec Tournoi avant de le garder.
+ *
+ * Usage : java Banc.Texel [-mode hard|medium] [-j threads] [-ignorer demi-coups]
+ * [-iterations n] [-poids profil] [-sortie fichier] journal...
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class Texel {
+
+    private static final int NB = PoidsHeuristique.NB_TERMES;
+
+    private final int threads;
+    private final ExecutorService pool;
+    private int capacite = 1 << 13; // positions qui tiennent dans les tableaux
+    private int[] termes = new int[capacite * NB]; // NB termes par position
+    private byte[] resultats = new byte[capacite]; // en demi-points
+    private int positions;
+
+    Texel(int threads) {
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String mode = "HARD";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int ignorer = 4;
+        int iterations = 2000;
+        PoidsHeuristique depart = null;
+        Path sortie = Paths.get(PoidsHeuristique.FICHIER_PROFILS);
+        List<Path> journaux = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-mode":
+                    mode = args[++i].toUpperCase();
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-ignorer":
+                    ignorer = Integer.parseInt(args[++i]);
+                    break;
+                case "-iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "-poids":
+                    depart = PoidsHeuristique.depuisTexte(args[++i]);
+                    break;
+                case "-sortie":
+                    sortie = Paths.get(args[++i]);
+                    break;
+                default:
+                    journaux.add(Paths.get(args[i]));
+            }
+        }
+        if (journaux.isEmpty() || !(mode.equals("HARD") || mode.equals("MEDIUM"))) {
+            System.err.println("Usage : java Banc.Texel [-mode hard|medium] [-j threads] [-ignorer demi-coups]"
+                    + " [-iterations n] [-poids profil] [-sortie fichier] journal...");
+            System.exit(2);
+        }
+        if (depart == null) {
+            depart = PoidsHeuristique.pourMode(mode);
+        }
+
+        Texel texel = new Texel(threads);
+        for (Path journal : journaux) {
+            texel.charger(journal, ignorer);
+        }
+        System.out.println(texel.positions + " positions, " + threads + " thread(s)");
+        if (texel.positions == 0) {
+            System.exit(1);
+        }
+
+        double[] w = new double[NB];
+        for (int t = 0; t < NB; t++) {
+            w[t] = depart.get(t);
+        }
+        double k = texel.ajusterK(w);
+        double erreurDepart = texel.erreur(w, k, null);
+        System.out.printf(Locale.ROOT, "K = %.5f, erreur de départ %.6f (%s)%n", k, erreurDepart, depart);
+
+        texel.descendre(w, k, iterations);
+        PoidsHeuristique regle = texel.affiner(w, k);
+        double erreurFinale = texel.erreur(versDouble(regle), k, null);
+        texel.pool.shutdown();
+
+        System.out.printf(Locale.ROOT, "Erreur finale %.6f%n", erreurFinale);
+        System.out.println("Poids " + mode.toLowerCase() + " : " + regle);
+        PoidsHeuristique.enregistrer(sortie, mode, regle, String.format(Locale.ROOT,
+                "Banc.Texel : %d positions, erreur %.6f -> %.6f", texel.positions, erreurDepart, erreurFinale));
+        System.out.println("Écrit dans " + sortie);
+    }
+
+    /**
+     * Rejoue les parties d'un journal et garde leurs positions
+     *
+     * @param ignorer demi-coups du début de chaque partie à ne pas garder
+     * (l'ouverture tirée au hasard)
+     */
+    void charger(Path journal, int ignorer) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String ligne;
+            while ((ligne = in.readLine()) != null) {
+                String[] champs = ligne.trim().split("\\s+");
+                if (champs[0].isEmpty()) {
+                    continue;
+                }
+                int vainqueur = Integer.parseInt(champs[0]);
+                JeuCompact etat = new JeuCompact();
+                for (int i = 1; i < champs.length; i++) {
+                    if (i - 1 >= ignorer) {
+                        int joueur = etat.getJoueurCourant();
+                        ajouter(etat, joueur, vainqueur == 0 ? 1 : vainqueur == joueur ? 2 : 0);
+                    }
+                    etat.makeMove(Integer.parseInt(champs[i]));
+                }
+            }
+        }
+    }
+
+    private void ajouter(JeuCompact etat, int joueur, int resultat) {
+        if (positions == capacite) {
+            capacite *= 2;
+            termes = Arrays.copyOf(termes, capacite * NB);
+            resultats = Arrays.copyOf(resultats, capacite);
+        }
+        int base = positions * NB;
+        for (int t = 0; t < NB; t++) {
+            termes[base + t] = IAminimax.terme(etat, joueur, t);
+        }
+        resultats[positions++] = (byte) resultat;
+    }
+
+    /**
+     * Erreur quadratique moyenne des poids w, calculée sur les threads
+     *
+     * @param gradient si non null, reçoit la dérivée de l'erreur par poids
+     */
+    double erreur(double[] w, double k, double[] gradient) {
+        int morceau = (positions + threads - 1) / threads;
+        List<Future<double[]>> parts = new ArrayList<>();
+        for (int debut = 0; debut < positions; debut += morceau) {
+            int de = debut;
+            int a = Math.min(positions, debut + morceau);
+            parts.add(pool.submit(() -> erreur(w, k, de, a, gradient != null)));
+        }
+        double somme = 0;
+        if (gradient != null) {
+            Arrays.fill(gradient, 0);
+        }
+        try {
+            for (Future<double[]> f : parts) {
+                double[] part = f.get();
+                somme += part[NB];
+                if (gradient != null) {
+                    for (int t = 0; t < NB; t++) {
+                        gradient[t] += part[t] / positions;
+                    }
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+        return somme / positions;
+    }
+
+    // Somme des erreurs des positions [de, a), et leur gradient dans les NB
+    // premières cases
+    private double[] erreur(double[] w, double k, int de, int a, boolean gradient) {
+        double[] part = new double[NB + 1];
+        for (int i = de; i < a; i++) {
+            int base = i * NB;
+            double score = 0;
+            for (int t = 0; t < NB; t++) {
+                score += w[t] * termes[base + t];
+            }
+            double s = 1 / (1 + Math.exp(-k * score));
+            double ecart = resultats[i] * 0.5 - s;
+            part[NB] += ecart * ecart;
+            if (gradient) {
+                double d = -2 * ecart * s * (1 - s) * k;
+                for (int t = 0; t < NB; t++) {
+                    part[t] += d * termes[base + t];
+                }
+            }
+        }
+        return part;
+    }
+
+    // K qui minimise l'erreur des poids de départ (section dorée sur log K)
+    private double ajusterK(double[] w) {
+        double a = Math.log(1e-4);
+        double b = Math.log(1);
+        double nombreOr = (Math.sqrt(5) - 1) / 2;
+        double c = b - nombreOr * (b - a);
+        double d = a + nombreOr * (b - a);
+        double ec = erreur(w, Math.exp(c), null);
+        double ed = erreur(w, Math.exp(d), null);
+        for (int i = 0; i < 40; i++) {
+            if (ec < ed) {
+                b = d;
+                d = c;
+                ed = ec;
+                c = b - nombreOr * (b - a);
+                ec = erreur(w, Math.exp(c), null);
+            } else {
+                a = c;
+                c = d;
+                ec = ed;
+                d = a + nombreOr * (b - a);
+                ed = erreur(w, Math.exp(d), null);
+            }
+        }
+        return Math.exp((a + b) / 2);
+    }
+
+    // Descente de gradient (Adam) sur les poids réels, matériel fixe
+    private void descendre(double[] w, double k, int iterations) {
+        double pas = 0.05;
+        double[] g = new double[NB];
+        double[] m = new double[NB];
+        double[] v = new double[NB];
+        for (int it = 1; it <= iterations; it++) {
+            double e = erreur(w, k, g);
+            for (int t = 0; t < NB; t++) {
+                if (t == PoidsHeuristique.MATERIEL) {
+                    continue;
+                }
+                m[t] = 0.9 * m[t] + 0.1 * g[t];
+                v[t] = 0.999 * v[t] + 0.001 * g[t] * g[t];
+                double mc = m[t] / (1 - Math.pow(0.9, it));
+                double vc = v[t] / (1 - Math.pow(0.999, it));
+                w[t] -= pas * mc / (Math.sqrt(vc) + 1e-12);
+            }
+            if (it % 200 == 0 || it == iterations) {
+                System.out.printf(Locale.ROOT, "  itération %d : erreur %.6f%n", it, e);
+            }
+        }
+    }
+
+    // Arrondit les poids puis essaie +1/-1 sur chacun tant que l'erreur baisse
+    private PoidsHeuristique affiner(double[] reels, double k) {
+        int[] poids = new int[NB];
+        for (int t = 0; t < NB; t++) {
+            poids[t] = (int) Math.round(reels[t]);
+        }
+        double meilleure = erreur(versDouble(poids), k, null);
+        boolean mieux = true;
+        for (int passe = 0; passe < 20 && mieux; passe++) {
+            mieux = false;
+            for (int t = 0; t < NB; t++) {
+                if (t == PoidsHeuristique.MATERIEL) {
+                    continue;
+                }
+                for (int delta : new int[]{1, -1}) {
+                    poids[t] += delta;
+                    double e = erreur(versDouble(poids), k, null);
+                    if (e < meilleure) {
+                        meilleure = e;
+                        mieux = true;
+                        break;
+                    }
+                    poids[t] -= delta;
+                }
+            }
+        }
+        return new PoidsHeuristique(poids);
+    }
+
+    private static double[] versDouble(PoidsHeuristique poids) {
+        return versDouble(poids.toArray());
+    }
+
+    private static double[] versDouble(int[] poids) {
+        double[] w = new double[poids.length];
+        for (int t = 0; t < poids.length; t++) {
+            w[t] = poids[t];
+        }
+        return w;
+    }
+}
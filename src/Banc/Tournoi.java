@@ -0,0 +1,394 @@
+package Banc;
+
+import Modele.GenerateurTours;
+import Modele.JeuCompact;
+import Modele.ListeTours;
+import Network.IAminimax;
+import Network.IAmcts;
+import Network.MoteurIA;
+import Network.PoidsHeuristique;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tournoi entre deux réglages de l'IA, sans interface ni réseau : les
+ * parties sont jouées directement sur {@link JeuCompact}, plusieurs à la fois
+ * sur un pool de threads.
+ *
+ * Chaque camp a son moteur (minimax ou mcts), sa difficulté, sa profondeur
+ * maximale, son temps par tour et ses poids d'heuristique. Les parties vont par paires : les deux parties
+ * d'une paire partent de la même ouverture tirée au hasard (quelques
+ * demi-coups joués depuis la position de départ), chaque camp ayant les
+ * blancs une fois. Une partie qui dépasse le nombre maximal de demi-coups est
+ * nulle.
+ *
+ * Le tournoi affiche les victoires, nulles et défaites du camp A, l'écart
+ * d'Elo avec son intervalle de confiance à 95 %, les noeuds par seconde de
+ * chaque camp et les percentiles du temps de réflexion par tour.
+ *
+ * Avec -journal, chaque partie est écrite sur une ligne : le vainqueur (1, 2,
+ * ou 0 pour une nulle) puis les codes des tours joués depuis la position de
+ * départ, ouverture comprise (voir {@link Modele.Tour}). {@link Texel} lit ces
+ * journaux.
+ *
+ * Usage : java Banc.Tournoi [-n parties] [-j threads] [-a difficulté:profondeur:tempsMs[:moteur]]
+ * [-b difficulté:profondeur:tempsMs[:moteur]] [-poids-a profil] [-poids-b profil]
+ * [-reglages-a réglages] [-reglages-b réglages]
+ * [-ouverture demi-coups] [-max demi-coups] [-tt Mo] [-graine graine]
+ * [-journal fichier]
+ *
+ * Un profil de poids s'écrit comme {@link PoidsHeuristique#toString()}, des
+ * réglages de recherche comme le demande {@link IAminimax#regler(String)}.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class Tournoi {
+
+    private static final double Z_95 = 1.959964;
+
+    /**
+     * Réglage d'un camp
+     */
+    private static final class Camp {
+
+        final String nom;
+        int difficulte = 5;
+        int profondeur = 4;
+        long tempsMs = 200;
+        boolean mcts;
+        PoidsHeuristique poids; // null : les poids de la difficulté
+        String reglages; // null : les réglages de recherche de la difficulté (minimax)
+
+        Camp(String nom) {
+            this.nom = nom;
+        }
+
+        void lire(String reglage) {
+            String[] champs = reglage.split(":");
+            difficulte = Integer.parseInt(champs[0]);
+            if (champs.length > 1) {
+                profondeur = Integer.parseInt(champs[1]);
+            }
+            if (champs.length > 2) {
+                tempsMs = Long.parseLong(champs[2]);
+            }
+            if (champs.length > 3) {
+                mcts = champs[3].equalsIgnoreCase("mcts");
+            }
+        }
+
+        MoteurIA creer(int tailleTableMo) {
+            MoteurIA ia;
+            if (mcts) {
+                IAmcts m = new IAmcts(difficulte);
+                if (poids != null) {
+                    m.setPoids(poids);
+                }
+                ia = m;
+            } else {
+                IAminimax m = new IAminimax(difficulte, null, tailleTableMo);
+                if (poids != null) {
+                    m.setPoids(poids);
+                }
+                if (reglages != null) {
+                    m.regler(reglages);
+                }
+                ia = m;
+            }
+            ia.setVerbeux(false);
+            ia.setLimites(profondeur, tempsMs);
+            return ia;
+        }
+
+        @Override
+        public String toString() {
+            return nom + " : " + (mcts ? "mcts" : "minimax") + ", difficulté " + difficulte + ", profondeur " + profondeur + ", " + tempsMs + " ms"
+                    + (poids == null ? "" : ", poids " + poids) + (reglages == null ? "" : ", " + reglages);
+        }
+    }
+
+    /**
+     * Déroulement d'une partie, du point de vue des camps A (0) et B (1)
+     */
+    private static final class Partie {
+
+        int resultat; // 1 : A gagne, 0 : nulle, -1 : B gagne
+        int vainqueur; // 1 ou 2, 0 pour une nulle
+        int demiCoups;
+        final List<Integer> tours = new ArrayList<>(); // ouverture comprise
+        final long[] noeuds = new long[2];
+        final long[] tempsNs = new long[2];
+        final List<List<Long>> latences = List.of(new ArrayList<>(), new ArrayList<>());
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int parties = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int ouverture = 4;
+        int maxDemiCoups = 200;
+        int tailleTableMo = 16;
+        long graine = 1;
+        String journal = null;
+        Camp a = new Camp("A");
+        Camp b = new Camp("B");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-n":
+                    parties = Integer.parseInt(args[++i]);
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-a":
+                    a.lire(args[++i]);
+                    break;
+                case "-b":
+                    b.lire(args[++i]);
+                    break;
+                case "-poids-a":
+                    a.poids = PoidsHeuristique.depuisTexte(args[++i]);
+                    break;
+                case "-poids-b":
+                    b.poids = PoidsHeuristique.depuisTexte(args[++i]);
+                    break;
+                case "-reglages-a":
+                    a.reglages = args[++i];
+                    break;
+                case "-reglages-b":
+                    b.reglages = args[++i];
+                    break;
+                case "-ouverture":
+                    ouverture = Integer.parseInt(args[++i]);
+                    break;
+                case "-max":
+                    maxDemiCoups = Integer.parseInt(args[++i]);
+                    break;
+                case "-tt":
+                    tailleTableMo = Integer.parseInt(args[++i]);
+                    break;
+                case "-graine":
+                    graine = Long.parseLong(args[++i]);
+                    break;
+                case "-journal":
+                    journal = args[++i];
+                    break;
+                default:
+                    System.err.println("Option inconnue : " + args[i]);
+                    System.exit(2);
+            }
+        }
+        parties += parties % 2; // par paires
+
+        System.out.println("Tournoi : " + parties + " parties sur " + threads + " thread(s), ouverture de "
+                + ouverture + " demi-coups, nulle après " + maxDemiCoups + " demi-coups");
+        System.out.println(a);
+        System.out.println(b);
+
+        // Chaque thread garde ses deux IA d'une partie à l'autre
+        int taille = tailleTableMo;
+        ThreadLocal<MoteurIA[]> ias = ThreadLocal.withInitial(() -> new MoteurIA[]{a.creer(taille), b.creer(taille)});
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Partie>> futures = new ArrayList<>();
+        long debut = System.nanoTime();
+        for (int p = 0; p < parties; p++) {
+            int[] depart = ouverture(graine + p / 2, ouverture);
+            boolean aBlancs = p % 2 == 0;
+            long graineIA = graine * 1000003L + p;
+            int max = maxDemiCoups;
+            futures.add(pool.submit(() -> jouer(ias.get(), depart, aBlancs, max, graineIA)));
+        }
+
+        int victoires = 0;
+        int nulles = 0;
+        int defaites = 0;
+        long demiCoups = 0;
+        long[] noeuds = new long[2];
+        long[] tempsNs = new long[2];
+        List<List<Long>> latences = List.of(new ArrayList<>(), new ArrayList<>());
+        PrintWriter sortie = null;
+        if (journal != null) {
+            try {
+                sortie = new PrintWriter(Files.newBufferedWriter(Paths.get(journal), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("Impossible d'écrire le journal " + journal + " : " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        for (int p = 0; p < futures.size(); p++) {
+            Partie partie;
+            try {
+                partie = futures.get(p).get();
+            } catch (ExecutionException e) {
+                System.err.println("Erreur dans la partie " + p + " : " + e.getCause());
+                continue;
+            }
+            if (partie.resultat > 0) {
+                victoires++;
+            } else if (partie.resultat < 0) {
+                defaites++;
+            } else {
+                nulles++;
+            }
+            demiCoups += partie.demiCoups;
+            if (sortie != null) {
+                StringBuilder ligne = new StringBuilder().append(partie.vainqueur);
+                for (int tour : partie.tours) {
+                    ligne.append(' ').append(tour);
+                }
+                sortie.println(ligne);
+            }
+            for (int c = 0; c < 2; c++) {
+                noeuds[c] += partie.noeuds[c];
+                tempsNs[c] += partie.tempsNs[c];
+                latences.get(c).addAll(partie.latences.get(c));
+            }
+            if ((p + 1) % Math.max(1, parties / 10) == 0) {
+                System.out.printf("  %d/%d parties : +%d =%d -%d%n", p + 1, parties, victoires, nulles, defaites);
+            }
+        }
+        pool.shutdown();
+        if (sortie != null) {
+            sortie.close();
+        }
+        long duree = System.nanoTime() - debut;
+
+        int jouees = victoires + nulles + defaites;
+        System.out.println();
+        System.out.printf("Camp A : %d victoires, %d nulles, %d défaites sur %d parties (%.1f s, %.1f demi-coups par partie)%n",
+                victoires, nulles, defaites, jouees, duree / 1e9, (double) demiCoups / Math.max(1, jouees));
+        afficherElo(victoires, nulles, defaites);
+        System.out.println();
+        System.out.println("camp |   noeuds/s |  tours | latence (ms) p50 |    p90 |    p99 |    max");
+        Camp[] camps = {a, b};
+        for (int c = 0; c < 2; c++) {
+            List<Long> l = latences.get(c);
+            Collections.sort(l);
+            System.out.printf(Locale.ROOT, "%4s | %10.0f | %6d | %16.1f | %6.1f | %6.1f | %6.1f%n", camps[c].nom,
+                    noeuds[c] * 1e9 / Math.max(1, tempsNs[c]), l.size(),
+                    percentile(l, 0.50), percentile(l, 0.90), percentile(l, 0.99), percentile(l, 1.0));
+        }
+        System.exit(0);
+    }
+
+    // Ouverture d'une paire : quelques demi-coups au hasard depuis la position
+    // de départ, sans finir la partie
+    static int[] ouverture(long graine, int demiCoups) {
+        Random r = new Random(graine);
+        GenerateurTours generateur = new GenerateurTours();
+        ListeTours tours = new ListeTours();
+        int[] joues = new int[demiCoups];
+        while (true) {
+            JeuCompact etat = new JeuCompact();
+            boolean finie = false;
+            for (int k = 0; k < demiCoups && !finie; k++) {
+                generateur.generer(etat, tours);
+                if (tours.estVide()) {
+                    finie = true;
+                    break;
+                }
+                int joueur = etat.getJoueurCourant();
+                joues[k] = tours.get(r.nextInt(tours.taille()));
+                etat.makeMove(joues[k]);
+                finie = vainqueur(etat, joueur) != 0;
+            }
+            if (!finie) {
+                return joues;
+            }
+        }
+    }
+
+    private static Partie jouer(MoteurIA[] ias, int[] ouverture, boolean aBlancs, int maxDemiCoups, long graine) {
+        Partie partie = new Partie();
+        JeuCompact etat = new JeuCompact();
+        for (int tour : ouverture) {
+            etat.makeMove(tour);
+            partie.tours.add(tour);
+        }
+        for (int c = 0; c < 2; c++) {
+            ias[c].nouvellePartie();
+            ias[c].setGraine(graine + c);
+        }
+        while (partie.demiCoups < maxDemiCoups) {
+            int joueur = etat.getJoueurCourant();
+            int camp = (joueur == 1) == aBlancs ? 0 : 1;
+            long debut = System.nanoTime();
+            int tour = ias[camp].chercherTour(etat);
+            long duree = System.nanoTime() - debut;
+            partie.tempsNs[camp] += duree;
+            partie.noeuds[camp] += ias[camp].getNoeuds();
+            partie.latences.get(camp).add(duree);
+            if (tour < 0) {
+                // Plus de tour possible : la partie est déjà gagnée par le joueur courant
+                partie.resultat = camp == 0 ? 1 : -1;
+                partie.vainqueur = joueur;
+                return partie;
+            }
+            etat.makeMove(tour);
+            partie.tours.add(tour);
+            partie.demiCoups++;
+            int gagnant = vainqueur(etat, joueur);
+            if (gagnant != 0) {
+                boolean gagnantA = (gagnant == 1) == aBlancs;
+                partie.resultat = gagnantA ? 1 : -1;
+                partie.vainqueur = gagnant;
+                return partie;
+            }
+        }
+        partie.resultat = 0;
+        return partie;
+    }
+
+    // Le vainqueur après le tour du joueur, 0 si la partie continue
+    static int vainqueur(JeuCompact etat, int joueur) {
+        if (etat.gameOver(joueur) != 0) {
+            return joueur;
+        }
+        return etat.gameOver(3 - joueur);
+    }
+
+    private static double percentile(List<Long> triees, double q) {
+        if (triees.isEmpty()) {
+            return Double.NaN;
+        }
+        int i = (int) Math.ceil(q * triees.size()) - 1;
+        return triees.get(Math.max(0, Math.min(triees.size() - 1, i))) / 1e6;
+    }
+
+    // Écart d'Elo de A sur B, d'après le score moyen et sa variance sur les
+    // parties (victoire 1, nulle 1/2, défaite 0)
+    private static void afficherElo(int victoires, int nulles, int defaites) {
+        int n = victoires + nulles + defaites;
+        if (n == 0) {
+            return;
+        }
+        double score = (victoires + 0.5 * nulles) / n;
+        double variance = (victoires * Math.pow(1 - score, 2) + nulles * Math.pow(0.5 - score, 2)
+                + defaites * Math.pow(score, 2)) / n;
+        double marge = Z_95 * Math.sqrt(variance / n);
+        System.out.printf(Locale.ROOT, "Score de A : %.1f %%, Elo A - B : %s [%s, %s] (IC 95 %%)%n", 100 * score,
+                elo(score), elo(score - marge), elo(score + marge));
+    }
+
+    private static String elo(double score) {
+        if (score <= 0) {
+            return "-inf";
+        }
+        if (score >= 1) {
+            return "+inf";
+        }
+        return String.format(Locale.ROOT, "%+.1f", -400 * Math.log10(1 / score - 1));
+    }
+}
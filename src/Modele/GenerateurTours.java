@@ -0,0 +1,192 @@
+package Modele;
+
+import java.util.Arrays;
+
+/**
+ * Générateur des tours complets (pièce, action 1, action 2, prochain plateau)
+ * du joueur courant d'un {@link JeuCompact}, pour la recherche de l'IA.
+ *
+ * Les coups possibles d'une pièce se lisent dans des tables calculées une fois
+ * pour toutes : pour chaque case, la case voisine dans chaque direction (ou
+ * l'absence de voisine au bord du plateau) et la case visée par un clone ou un
+ * jump selon le plateau. Les actions sont jouées sur un état de travail
+ * recopié depuis l'état courant (quatre mots), sans jamais cloner de Jeu.
+ *
+ * Beaucoup de paires d'actions mènent à la même position (gauche puis droite
+ * et droite puis gauche, deux déplacements dans un sens puis dans l'autre,
+ * etc.). Par défaut, un seul tour est gardé par position atteinte, et un seul
+ * plateau quand le tour gagne la partie puisque le choix du plateau est alors
+ * ignoré. Les tours sont donnés dans le même ordre que
+ * {@link Jeu#getCoupPossibles} et que la liste de l'IA.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class GenerateurTours {
+
+    // Coups dans l'ordre où Jeu.getCoupPossibles les donne
+    private static final Coup.TypeCoup[] ORDRE = {
+        Coup.TypeCoup.UP, Coup.TypeCoup.DOWN, Coup.TypeCoup.LEFT, Coup.TypeCoup.RIGHT,
+        Coup.TypeCoup.CLONE, Coup.TypeCoup.JUMP
+    };
+    private static final int NB_COUPS = ORDRE.length;
+    private static final int INDICE_CLONE = 4;
+    private static final int INDICE_JUMP = 5;
+
+    // Pour chaque case et chaque coup de ORDRE, la case visée ; -1 si le
+    // déplacement sort du plateau ou si le voyage n'existe pas sur ce plateau
+    private static final int[][] CIBLES = new int[JeuCompact.NB_POSITIONS][NB_COUPS];
+
+    static {
+        for (int position = 0; position < JeuCompact.NB_POSITIONS; position++) {
+            int plateau = JeuCompact.plateauDe(position);
+            int lig = JeuCompact.ligneDe(position);
+            int col = JeuCompact.colonneDe(position);
+            int[] cibles = CIBLES[position];
+            cibles[0] = lig > 0 ? position - JeuCompact.TAILLE : -1;
+            cibles[1] = lig < JeuCompact.TAILLE - 1 ? position + JeuCompact.TAILLE : -1;
+            cibles[2] = col > 0 ? position - 1 : -1;
+            cibles[3] = col < JeuCompact.TAILLE - 1 ? position + 1 : -1;
+            cibles[INDICE_CLONE] = plateau != JeuCompact.PAST ? position - JeuCompact.NB_CASES : -1;
+            cibles[INDICE_JUMP] = plateau != JeuCompact.FUTURE ? position + JeuCompact.NB_CASES : -1;
+        }
+    }
+
+    private final JeuCompact apresAction1 = new JeuCompact();
+    private final JeuCompact apresAction2 = new JeuCompact();
+    private boolean dedoublonnage = true;
+
+    // Positions déjà atteintes pendant la génération en cours (adressage
+    // ouvert, une case n'est occupée que si sa marque est la marque courante)
+    private final long[] vues = new long[1024];
+    private final int[] marques = new int[vues.length];
+    private int marque = 0;
+
+    /**
+     * Garde ou non les tours qui mènent à une position déjà atteinte par un
+     * autre tour. Activé par défaut ; le couper donne exactement les tours de
+     * {@link Jeu}, par exemple pour le comparer au modèle objet
+     */
+    public void setDedoublonnage(boolean dedoublonnage) {
+        this.dedoublonnage = dedoublonnage;
+    }
+
+    /**
+     * Donne les coups possibles pour une pièce, comme
+     * {@link JeuCompact#coupsPossibles(int)}, mais lus dans les tables
+     *
+     * @param jeu l'état
+     * @param position case de la pièce
+     * @param joueurId propriétaire de la pièce
+     * @return le masque des coups possibles, dont le bit k correspond au k-ième
+     * coup de l'ordre UP, DOWN, LEFT, RIGHT, CLONE, JUMP
+     */
+    private static int coups(JeuCompact jeu, int position, int joueurId) {
+        long propres = jeu.getPieces(joueurId);
+        long occupees = propres | jeu.getPieces(3 - joueurId);
+        int[] cibles = CIBLES[position];
+        int masque = 0;
+        for (int k = 0; k < INDICE_CLONE; k++) {
+            int cible = cibles[k];
+            if (cible >= 0 && ((propres >>> cible) & 1L) == 0) {
+                masque |= 1 << k;
+            }
+        }
+        int clone = cibles[INDICE_CLONE];
+        if (clone >= 0 && ((occupees >>> clone) & 1L) == 0 && jeu.getNbClones(joueurId) > 0) {
+            masque |= 1 << INDICE_CLONE;
+        }
+        int jump = cibles[INDICE_JUMP];
+        if (jump >= 0 && ((occupees >>> jump) & 1L) == 0) {
+            masque |= 1 << INDICE_JUMP;
+        }
+        return masque;
+    }
+
+    /**
+     * Remplit la liste avec les tours du joueur courant, codés par
+     * {@link Tour}. La liste est vide si la partie est finie.
+     *
+     * @param etat l'état, qui n'est pas modifié
+     * @param liste la liste à remplir
+     */
+    public void generer(JeuCompact etat, ListeTours liste) {
+        liste.vider();
+        int joueur = etat.getJoueurCourant();
+        if (etat.gameOver(joueur) != 0) {
+            return;
+        }
+        if (++marque == 0) {
+            Arrays.fill(marques, 0);
+            marque = 1;
+        }
+        int plateauCourant = etat.getPlateauCourant();
+        int pieces = etat.getPiecesPlateau(joueur, plateauCourant);
+        if (pieces == 0) {
+            ajouter(liste, Tour.coder(-1, -1, -1, 0), etat, joueur, plateauCourant);
+            return;
+        }
+        while (pieces != 0) {
+            int position = plateauCourant * JeuCompact.NB_CASES + Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+
+            int coups1 = coups(etat, position, joueur);
+            for (int k1 = 0; k1 < NB_COUPS; k1++) {
+                if ((coups1 & (1 << k1)) == 0) {
+                    continue;
+                }
+                // La seconde action dépend de l'état après la première
+                apresAction1.copier(etat);
+                int position2 = apresAction1.appliquerCoup(position, ORDRE[k1]);
+                int coups2 = position2 < 0 ? 0 : coups(apresAction1, position2, joueur);
+                if (coups2 == 0) {
+                    ajouter(liste, Tour.coder(position, ORDRE[k1], null, 0), apresAction1, joueur, plateauCourant);
+                    continue;
+                }
+                for (int k2 = 0; k2 < NB_COUPS; k2++) {
+                    if ((coups2 & (1 << k2)) == 0) {
+                        continue;
+                    }
+                    apresAction2.copier(apresAction1);
+                    apresAction2.appliquerCoup(position2, ORDRE[k2]);
+                    ajouter(liste, Tour.coder(position, ORDRE[k1], ORDRE[k2], 0), apresAction2, joueur, plateauCourant);
+                }
+            }
+        }
+    }
+
+    // Ajoute le tour avec chacun des plateaux différents du plateau courant,
+    // sauf s'il mène à une position déjà vue
+    private void ajouter(ListeTours liste, int tour, JeuCompact resultat, int joueur, int plateauCourant) {
+        boolean gagnant = false;
+        if (dedoublonnage) {
+            if (!nouvelle(resultat.getHash())) {
+                return;
+            }
+            // Un tour gagnant ne change pas de plateau (voir JeuCompact.choisirPlateau)
+            gagnant = resultat.gameOver(joueur) != 0 && resultat.getEtapeCoup() != 3;
+        }
+        for (int plateau = JeuCompact.PAST; plateau <= JeuCompact.FUTURE; plateau++) {
+            if (plateau != plateauCourant) {
+                liste.ajouter(Tour.avecPlateau(tour, plateau));
+                if (gagnant) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean nouvelle(long hash) {
+        int masque = vues.length - 1;
+        int i = (int) (hash ^ (hash >>> 32)) & masque;
+        while (marques[i] == marque) {
+            if (vues[i] == hash) {
+                return false;
+            }
+            i = (i + 1) & masque;
+        }
+        marques[i] = marque;
+        vues[i] = hash;
+        return true;
+    }
+}
@@ -0,0 +1,768 @@
+package Modele;
+
+/**
+ * Représentation compacte de l'état du jeu, destinée à l'IA.
+ *
+ * Chaque joueur possède un masque d'occupation de 48 bits rangé dans un long :
+ * bits 0-15 pour le passé, 16-31 pour le présent et 32-47 pour le futur. Dans
+ * un plateau, la case (lig, col) correspond au bit lig * 4 + col. Le nombre de
+ * clones, le prochain plateau de chaque joueur, le joueur courant et l'étape du
+ * coup sont regroupés dans un seul entier. Copier l'état revient donc à copier
+ * trois mots, sans aucune allocation de Piece ou de Point.
+ *
+ * Les règles sont les mêmes que celles de {@link Jeu} (appliquerCoup, jumping,
+ * clonage, deplacerPiece, getCoupPossibles, gameOver, choisirPlateau).
+ *
+ * Les règles ne changent pas quand les trois plateaux sont transposés en même
+ * temps (la case (lig, col) devient (col, lig), UP devient LEFT et DOWN
+ * devient RIGHT) : les pièces de départ sont en (0,0) et (3,3) et les
+ * déplacements sont orthogonaux. Une position et sa transposée ont donc la
+ * même valeur. L'état tient aussi à jour le hash de sa transposée, et le plus
+ * petit des deux sert de hash canonique aux tables de l'IA, qui rangent les
+ * tours dans le sens de la forme canonique (voir {@link Tour#transposer}).
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class JeuCompact {
+
+    public static final int TAILLE = 4;
+    public static final int NB_CASES = TAILLE * TAILLE; // cases par plateau
+    public static final int NB_POSITIONS = NB_CASES * 3; // cases sur les trois plateaux
+    public static final long MASQUE_PLATEAU = 0xFFFFL;
+
+    // Masques des cases d'un plateau (bit ligne * TAILLE + colonne)
+    public static final int MASQUE_COINS = 0x9009;
+    public static final int MASQUE_BORDS = 0x6996; // bords sans les coins
+    public static final int MASQUE_POURTOUR = MASQUE_COINS | MASQUE_BORDS;
+    public static final int MASQUE_CENTRE = 0x0660;
+    public static final int MASQUE_SANS_DERNIERE_COLONNE = 0x7777;
+    public static final int MASQUE_SANS_DERNIERE_LIGNE = 0x0FFF;
+
+    // Cases à distance de Manhattan <= 2 de chaque case d'un plateau
+    private static final int[] PROCHES = new int[NB_CASES];
+    // Case transposée de chaque case : (lig, col) devient (col, lig), sur le même plateau
+    private static final int[] TRANSPOSEES = new int[NB_POSITIONS];
+
+    static {
+        for (int position = 0; position < NB_POSITIONS; position++) {
+            TRANSPOSEES[position] = position(plateauDe(position), colonneDe(position), ligneDe(position));
+        }
+        for (int c = 0; c < NB_CASES; c++) {
+            for (int d = 0; d < NB_CASES; d++) {
+                int distance = Math.abs(c / TAILLE - d / TAILLE) + Math.abs(c % TAILLE - d % TAILLE);
+                if (distance <= 2) {
+                    PROCHES[c] |= 1 << d;
+                }
+            }
+        }
+    }
+
+    public static final int PAST = 0;
+    public static final int PRESENT = 1;
+    public static final int FUTURE = 2;
+
+    // Disposition du champ infos
+    private static final int DECALAGE_CLONES1 = 0; // 8 bits
+    private static final int DECALAGE_CLONES2 = 8; // 8 bits
+    private static final int DECALAGE_PROCHAIN1 = 16; // 2 bits
+    private static final int DECALAGE_PROCHAIN2 = 18; // 2 bits
+    private static final int DECALAGE_JOUEUR = 20; // 1 bit, 0 = joueur 1, 1 = joueur 2
+    private static final int DECALAGE_ETAPE = 21; // 2 bits
+
+    private long blancs; // pièces du joueur 1
+    private long noirs; // pièces du joueur 2
+    private int infos;
+    private long hash; // hash de Zobrist, mis à jour à chaque modification
+    private long hashTransposee; // hash de la position transposée, mis à jour avec hash
+
+    // Pile d'annulation de makeMove : cinq mots par tour joué
+    private long[] annulations = new long[5 * 32];
+    private int nbAnnulations = 0;
+
+    /**
+     * Crée l'état initial, identique à celui de {@code new Jeu()}
+     */
+    public JeuCompact() {
+        long depart = 0L;
+        long arrivee = 0L;
+        for (int plateau = PAST; plateau <= FUTURE; plateau++) {
+            depart |= 1L << position(plateau, 0, 0);
+            arrivee |= 1L << position(plateau, TAILLE - 1, TAILLE - 1);
+        }
+        blancs = depart;
+        noirs = arrivee;
+        infos = 0;
+        setNbClones(1, 4);
+        setNbClones(2, 4);
+        setProchainPlateau(1, PAST);
+        setProchainPlateau(2, FUTURE);
+        setJoueurCourant(1);
+        setEtapeCoup(0);
+        calculerHash();
+    }
+
+    /**
+     * Crée l'état compact correspondant à un jeu
+     *
+     * @param jeu le jeu à convertir
+     */
+    public JeuCompact(Jeu jeu) {
+        Plateau[] plateaux = {jeu.getPast(), jeu.getPresent(), jeu.getFuture()};
+        for (int plateau = PAST; plateau <= FUTURE; plateau++) {
+            for (int lig = 0; lig < TAILLE; lig++) {
+                for (int col = 0; col < TAILLE; col++) {
+                    Piece p = plateaux[plateau].getPiece(lig, col);
+                    if (p != null) {
+                        if (p.getOwner().getId() == 1) {
+                            blancs |= 1L << position(plateau, lig, col);
+                        } else {
+                            noirs |= 1L << position(plateau, lig, col);
+                        }
+                    }
+                }
+            }
+        }
+        setNbClones(1, jeu.getJoueur1().getNbClones());
+        setNbClones(2, jeu.getJoueur2().getNbClones());
+        setProchainPlateau(1, jeu.getJoueur1().getProchainPlateau().ordinal());
+        setProchainPlateau(2, jeu.getJoueur2().getProchainPlateau().ordinal());
+        setJoueurCourant(jeu.getJoueurCourant().getId());
+        setEtapeCoup(jeu.getEtapeCoup());
+        calculerHash();
+    }
+
+    //Permet de faire des copies de l'état
+    public JeuCompact(JeuCompact copie) {
+        copier(copie);
+    }
+
+    /**
+     * Recopie un autre état dans celui-ci, sans allocation
+     *
+     * @param source l'état à recopier
+     */
+    public void copier(JeuCompact source) {
+        this.blancs = source.blancs;
+        this.noirs = source.noirs;
+        this.infos = source.infos;
+        this.hash = source.hash;
+        this.hashTransposee = source.hashTransposee;
+        this.nbAnnulations = 0;
+    }
+
+    /**
+     * Place directement les pièces des deux joueurs, pour construire une
+     * position qui ne vient pas d'une partie (tables de finales). Le reste
+     * de l'état ne change pas
+     *
+     * @param blancs masque des pièces du joueur 1
+     * @param noirs masque des pièces du joueur 2
+     */
+    public void setPieces(long blancs, long noirs) {
+        this.blancs = blancs;
+        this.noirs = noirs;
+        calculerHash();
+        this.nbAnnulations = 0;
+    }
+
+    private void calculerHash() {
+        hash = Zobrist.calculer(this);
+        hashTransposee = Zobrist.calculerTransposee(this);
+    }
+
+    // Symétrie
+
+    /**
+     * @return la case transposée d'une case : (lig, col) devient (col, lig),
+     * sur le même plateau
+     */
+    public static int transposee(int position) {
+        return TRANSPOSEES[position];
+    }
+
+    /**
+     * Transpose un masque de pièces sur les trois plateaux
+     */
+    public static long transposer(long pieces) {
+        long resultat = 0L;
+        while (pieces != 0) {
+            resultat |= 1L << TRANSPOSEES[Long.numberOfTrailingZeros(pieces)];
+            pieces &= pieces - 1;
+        }
+        return resultat;
+    }
+
+    /**
+     * Transpose la position sur place : les deux hash sont échangés
+     */
+    public void transposer() {
+        blancs = transposer(blancs);
+        noirs = transposer(noirs);
+        long h = hash;
+        hash = hashTransposee;
+        hashTransposee = h;
+        nbAnnulations = 0;
+    }
+
+    /**
+     * Donne le hash canonique de l'état, le même pour une position et sa
+     * transposée : le plus petit des deux hash
+     *
+     * @return le hash 64 bits
+     */
+    public long getHashCanonique() {
+        return Math.min(hash, hashTransposee);
+    }
+
+    /**
+     * @return vrai si la forme canonique de l'état est sa transposée : les
+     * tours lus dans une table rangée par hash canonique doivent alors être
+     * transposés
+     */
+    public boolean estTransposee() {
+        return hashTransposee < hash;
+    }
+
+    // Positions
+
+    /**
+     * Donne l'indice (0 à 47) d'une case sur l'un des trois plateaux
+     *
+     * @param plateau PAST, PRESENT ou FUTURE
+     * @param lig ligne de la case
+     * @param col colonne de la case
+     * @return l'indice de la case
+     */
+    public static int position(int plateau, int lig, int col) {
+        return plateau * NB_CASES + lig * TAILLE + col;
+    }
+
+    /**
+     * @param c case d'un plateau (ligne * TAILLE + colonne)
+     * @return le masque des cases du même plateau à distance de Manhattan <= 2
+     */
+    public static int proches(int c) {
+        return PROCHES[c];
+    }
+
+    /**
+     * Répète un masque de plateau sur les trois plateaux
+     */
+    public static long surTroisPlateaux(int masque) {
+        long m = masque & MASQUE_PLATEAU;
+        return m | (m << NB_CASES) | (m << (2 * NB_CASES));
+    }
+
+    public static int plateauDe(int position) {
+        return position >> 4;
+    }
+
+    public static int ligneDe(int position) {
+        return (position >> 2) & 3;
+    }
+
+    public static int colonneDe(int position) {
+        return position & 3;
+    }
+
+    // Accesseurs
+
+    public long getBlancs() {
+        return blancs;
+    }
+
+    public long getNoirs() {
+        return noirs;
+    }
+
+    public int getInfos() {
+        return infos;
+    }
+
+    /**
+     * Donne le hash de Zobrist de l'état, tenu à jour à chaque modification
+     *
+     * @return le hash 64 bits
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Vérifie que le hash incrémental correspond au hash recalculé
+     *
+     * @throws IllegalStateException si les deux hash diffèrent
+     */
+    public void verifierHash() {
+        long attendu = Zobrist.calculer(this);
+        if (attendu != hash) {
+            throw new IllegalStateException("JeuCompact: hash incrémental " + Long.toHexString(hash)
+                    + " différent du hash recalculé " + Long.toHexString(attendu) + " pour " + getGameStateAsString());
+        }
+        attendu = Zobrist.calculerTransposee(this);
+        if (attendu != hashTransposee) {
+            throw new IllegalStateException("JeuCompact: hash incrémental de la transposée " + Long.toHexString(hashTransposee)
+                    + " différent du hash recalculé " + Long.toHexString(attendu) + " pour " + getGameStateAsString());
+        }
+    }
+
+    /**
+     * Donne le masque des pièces d'un joueur sur les trois plateaux
+     *
+     * @param joueurId 1 ou 2
+     * @return le masque de 48 bits
+     */
+    public long getPieces(int joueurId) {
+        return joueurId == 1 ? blancs : noirs;
+    }
+
+    /**
+     * Donne le masque des pièces d'un joueur sur un plateau
+     *
+     * @param joueurId 1 ou 2
+     * @param plateau PAST, PRESENT ou FUTURE
+     * @return le masque de 16 bits
+     */
+    public int getPiecesPlateau(int joueurId, int plateau) {
+        return (int) ((getPieces(joueurId) >>> (plateau * NB_CASES)) & MASQUE_PLATEAU);
+    }
+
+    public int nbPieces(int joueurId, int plateau) {
+        return Integer.bitCount(getPiecesPlateau(joueurId, plateau));
+    }
+
+    /**
+     * Donne le propriétaire de la pièce sur une case
+     *
+     * @param position indice de la case
+     * @return 1 ou 2, 0 si la case est vide
+     */
+    public int getProprietaire(int position) {
+        if (((blancs >>> position) & 1L) != 0) {
+            return 1;
+        }
+        if (((noirs >>> position) & 1L) != 0) {
+            return 2;
+        }
+        return 0;
+    }
+
+    public int getNbClones(int joueurId) {
+        return (infos >>> (joueurId == 1 ? DECALAGE_CLONES1 : DECALAGE_CLONES2)) & 0xFF;
+    }
+
+    public void setNbClones(int joueurId, int nbClones) {
+        int decalage = joueurId == 1 ? DECALAGE_CLONES1 : DECALAGE_CLONES2;
+        long cles = Zobrist.CLONES[joueurId - 1][getNbClones(joueurId)] ^ Zobrist.CLONES[joueurId - 1][nbClones & 0xFF];
+        hash ^= cles;
+        hashTransposee ^= cles;
+        infos = (infos & ~(0xFF << decalage)) | ((nbClones & 0xFF) << decalage);
+    }
+
+    public int getProchainPlateau(int joueurId) {
+        return (infos >>> (joueurId == 1 ? DECALAGE_PROCHAIN1 : DECALAGE_PROCHAIN2)) & 3;
+    }
+
+    public void setProchainPlateau(int joueurId, int plateau) {
+        int decalage = joueurId == 1 ? DECALAGE_PROCHAIN1 : DECALAGE_PROCHAIN2;
+        long cles = Zobrist.PROCHAIN[joueurId - 1][getProchainPlateau(joueurId)] ^ Zobrist.PROCHAIN[joueurId - 1][plateau];
+        hash ^= cles;
+        hashTransposee ^= cles;
+        infos = (infos & ~(3 << decalage)) | (plateau << decalage);
+    }
+
+    public int getJoueurCourant() {
+        return ((infos >>> DECALAGE_JOUEUR) & 1) + 1;
+    }
+
+    public void setJoueurCourant(int joueurId) {
+        if (joueurId != getJoueurCourant()) {
+            hash ^= Zobrist.JOUEUR2;
+            hashTransposee ^= Zobrist.JOUEUR2;
+        }
+        infos = (infos & ~(1 << DECALAGE_JOUEUR)) | ((joueurId - 1) << DECALAGE_JOUEUR);
+    }
+
+    public int getAdversaire() {
+        return 3 - getJoueurCourant();
+    }
+
+    public int getEtapeCoup() {
+        return (infos >>> DECALAGE_ETAPE) & 3;
+    }
+
+    public void setEtapeCoup(int etape) {
+        long cles = Zobrist.ETAPE[getEtapeCoup()] ^ Zobrist.ETAPE[etape & 3];
+        hash ^= cles;
+        hashTransposee ^= cles;
+        infos = (infos & ~(3 << DECALAGE_ETAPE)) | ((etape & 3) << DECALAGE_ETAPE);
+    }
+
+    /**
+     * Donne le plateau sur lequel joue le joueur courant
+     *
+     * @return PAST, PRESENT ou FUTURE
+     */
+    public int getPlateauCourant() {
+        return getProchainPlateau(getJoueurCourant());
+    }
+
+    // Modification des cases
+
+    private void poser(int joueurId, int position) {
+        hash ^= Zobrist.PIECES[joueurId - 1][position];
+        hashTransposee ^= Zobrist.PIECES[joueurId - 1][TRANSPOSEES[position]];
+        if (joueurId == 1) {
+            blancs |= 1L << position;
+        } else {
+            noirs |= 1L << position;
+        }
+    }
+
+    private void retirer(int joueurId, int position) {
+        hash ^= Zobrist.PIECES[joueurId - 1][position];
+        hashTransposee ^= Zobrist.PIECES[joueurId - 1][TRANSPOSEES[position]];
+        if (joueurId == 1) {
+            blancs &= ~(1L << position);
+        } else {
+            noirs &= ~(1L << position);
+        }
+    }
+
+    // Règles
+
+    /**
+     * Donne les coups possibles pour la pièce située sur une case. Le résultat
+     * est un masque dont le bit i correspond à {@code Coup.TypeCoup.values()[i]}.
+     *
+     * @param position indice de la case de la pièce
+     * @return le masque des coups possibles, 0 si la case est vide
+     */
+    public int coupsPossibles(int position) {
+        int proprio = getProprietaire(position);
+        if (proprio == 0) {
+            return 0;
+        }
+        int plateau = plateauDe(position);
+        int lig = ligneDe(position);
+        int col = colonneDe(position);
+        int masque = 0;
+
+        // Déplacements : la case d'arrivée doit être libre ou occupée par l'autre joueur
+        if (lig > 0 && getProprietaire(position - TAILLE) != proprio) {
+            masque |= 1 << Coup.TypeCoup.UP.ordinal();
+        }
+        if (lig < TAILLE - 1 && getProprietaire(position + TAILLE) != proprio) {
+            masque |= 1 << Coup.TypeCoup.DOWN.ordinal();
+        }
+        if (col > 0 && getProprietaire(position - 1) != proprio) {
+            masque |= 1 << Coup.TypeCoup.LEFT.ordinal();
+        }
+        if (col < TAILLE - 1 && getProprietaire(position + 1) != proprio) {
+            masque |= 1 << Coup.TypeCoup.RIGHT.ordinal();
+        }
+
+        long occupees = blancs | noirs;
+        switch (plateau) {
+            case PAST:
+                if (((occupees >>> (position + NB_CASES)) & 1L) == 0) {
+                    masque |= 1 << Coup.TypeCoup.JUMP.ordinal();
+                }
+                break;
+
+            case FUTURE:
+                if (((occupees >>> (position - NB_CASES)) & 1L) == 0 && getNbClones(proprio) > 0) {
+                    masque |= 1 << Coup.TypeCoup.CLONE.ordinal();
+                }
+                break;
+
+            case PRESENT:
+                if (((occupees >>> (position - NB_CASES)) & 1L) == 0 && getNbClones(proprio) > 0) {
+                    masque |= 1 << Coup.TypeCoup.CLONE.ordinal();
+                }
+                if (((occupees >>> (position + NB_CASES)) & 1L) == 0) {
+                    masque |= 1 << Coup.TypeCoup.JUMP.ordinal();
+                }
+                break;
+
+            default:
+                break;
+        }
+        return masque;
+    }
+
+    /**
+     * Applique un coup à la pièce située sur une case
+     *
+     * @param position indice de la case de la pièce
+     * @param type le type du coup
+     * @return la nouvelle case de la pièce, -1 si elle a disparu
+     */
+    public int appliquerCoup(int position, Coup.TypeCoup type) {
+        int nouvellePosition;
+        switch (type) {
+            case UP:
+                nouvellePosition = deplacerPiece(position, -1, 0);
+                break;
+            case DOWN:
+                nouvellePosition = deplacerPiece(position, 1, 0);
+                break;
+            case LEFT:
+                nouvellePosition = deplacerPiece(position, 0, -1);
+                break;
+            case RIGHT:
+                nouvellePosition = deplacerPiece(position, 0, 1);
+                break;
+            case CLONE:
+                nouvellePosition = clonage(position);
+                break;
+            case JUMP:
+                nouvellePosition = jumping(position);
+                break;
+            default:
+                nouvellePosition = position;
+                break;
+        }
+        if (Zobrist.verification) {
+            verifierHash();
+        }
+        return nouvellePosition;
+    }
+
+    /**
+     * Déplace une pièce d'une case dans une direction. Comme dans Jeu, une pièce
+     * adverse sur la case d'arrivée est poussée (en chaîne), une pièce poussée
+     * hors du plateau disparaît et deux pièces de la même couleur qui se
+     * rencontrent disparaissent toutes les deux (paradoxe).
+     *
+     * @return la nouvelle case de la pièce, -1 si elle a disparu
+     */
+    private int deplacerPiece(int position, int dLig, int dCol) {
+        int base = plateauDe(position) * NB_CASES;
+        int pas = dLig * TAILLE + dCol;
+        int lig = ligneDe(position);
+        int col = colonneDe(position);
+        int proprio = getProprietaire(position);
+
+        // On avance dans la chaîne tant que la case suivante contient une pièce de l'autre couleur
+        int longueur = 0;
+        int courante = position;
+        boolean disparue = true; // la dernière pièce de la chaîne a-t-elle disparu ?
+        while (true) {
+            int ligDes = lig + dLig;
+            int colDes = col + dCol;
+            if (ligDes < 0 || ligDes >= TAILLE || colDes < 0 || colDes >= TAILLE) {
+                // La dernière pièce de la chaîne sort du plateau
+                retirer(proprio, courante);
+                break;
+            }
+            int destination = base + ligDes * TAILLE + colDes;
+            int suivant = getProprietaire(destination);
+            if (suivant == 0) {
+                retirer(proprio, courante);
+                poser(proprio, destination);
+                disparue = false;
+                break;
+            }
+            if (suivant == proprio) {
+                // Paradoxe
+                retirer(proprio, courante);
+                retirer(proprio, destination);
+                break;
+            }
+            proprio = suivant;
+            courante = destination;
+            lig = ligDes;
+            col = colDes;
+            longueur++;
+        }
+
+        // Les pièces précédentes de la chaîne avancent d'une case, de la dernière à la première
+        for (int i = longueur - 1; i >= 0; i--) {
+            int source = position + i * pas;
+            int joueur = getProprietaire(source);
+            retirer(joueur, source);
+            poser(joueur, source + pas);
+        }
+
+        if (longueur == 0 && disparue) {
+            // La pièce déplacée a disparu (sortie du plateau ou paradoxe)
+            return -1;
+        }
+        return position + pas;
+    }
+
+    /**
+     * Fait une action jump (voyage vers le futur)
+     *
+     * @return la nouvelle case de la pièce
+     */
+    private int jumping(int position) {
+        int plateau = plateauDe(position);
+        if (plateau == FUTURE) {
+            return position;
+        }
+        int proprio = getProprietaire(position);
+        retirer(proprio, position);
+        poser(proprio, position + NB_CASES);
+        return position + NB_CASES;
+    }
+
+    /**
+     * Fait une action clone (voyage vers le passé en laissant une copie)
+     *
+     * @return la nouvelle case de la pièce
+     */
+    private int clonage(int position) {
+        int plateau = plateauDe(position);
+        if (plateau == PAST) {
+            return position;
+        }
+        int proprio = getProprietaire(position);
+        poser(proprio, position - NB_CASES);
+        setNbClones(proprio, Math.max(0, getNbClones(proprio) - 1));
+        return position - NB_CASES;
+    }
+
+    /**
+     * Vérifie si un joueur a gagné, avec la même condition que
+     * {@link Jeu#gameOver(Joueur)} : l'adversaire n'a des pièces que sur un seul
+     * plateau.
+     *
+     * @param joueurId le joueur dont on teste la victoire
+     * @return l'identifiant du joueur s'il a gagné, 0 sinon
+     */
+    public int gameOver(int joueurId) {
+        long adverses = getPieces(3 - joueurId);
+        int plateauxOccupes = 0;
+        for (int plateau = PAST; plateau <= FUTURE; plateau++) {
+            if (((adverses >>> (plateau * NB_CASES)) & MASQUE_PLATEAU) != 0) {
+                plateauxOccupes++;
+            }
+        }
+        return plateauxOccupes == 1 ? joueurId : 0;
+    }
+
+    /**
+     * Choisit le prochain plateau du joueur courant, comme
+     * {@link Jeu#choisirPlateau(Plateau.TypePlateau)}
+     *
+     * @param prochainPlateau PAST, PRESENT ou FUTURE
+     * @return true si le choix a été pris en compte
+     */
+    public boolean choisirPlateau(int prochainPlateau) {
+        int joueur = getJoueurCourant();
+        if (gameOver(joueur) != 0 && getEtapeCoup() != 3) {
+            return false;
+        }
+        if (getProchainPlateau(joueur) == prochainPlateau) {
+            return false;
+        }
+        setProchainPlateau(joueur, prochainPlateau);
+        setEtapeCoup(0);
+        return true;
+    }
+
+    /**
+     * Change le joueur courant
+     */
+    public void joueurSuivant() {
+        setJoueurCourant(getAdversaire());
+    }
+
+    // Tour complet
+
+    /**
+     * Joue un tour complet en place (pièce, action 1, action 2, choix du
+     * prochain plateau), comme le simule l'IA sur une copie de Jeu, et
+     * enregistre de quoi revenir exactement à l'état précédent avec
+     * {@link #unmakeMove()}.
+     *
+     * @param position case de la pièce jouée, -1 si le joueur n'a pas de pièce
+     * sur son plateau
+     * @param action1 première action, ignorée si position vaut -1
+     * @param action2 seconde action, null s'il n'y en a pas
+     * @param prochainPlateau PAST, PRESENT ou FUTURE
+     */
+    public void makeMove(int position, Coup.TypeCoup action1, Coup.TypeCoup action2, int prochainPlateau) {
+        if (nbAnnulations == annulations.length) {
+            annulations = java.util.Arrays.copyOf(annulations, annulations.length * 2);
+        }
+        annulations[nbAnnulations++] = blancs;
+        annulations[nbAnnulations++] = noirs;
+        annulations[nbAnnulations++] = infos;
+        annulations[nbAnnulations++] = hash;
+        annulations[nbAnnulations++] = hashTransposee;
+
+        if (position >= 0 && action1 != null) {
+            int nouvellePosition = appliquerCoup(position, action1);
+            if (action2 != null && nouvellePosition >= 0) {
+                appliquerCoup(nouvellePosition, action2);
+            }
+        }
+        choisirPlateau(prochainPlateau);
+        joueurSuivant();
+        if (Zobrist.verification) {
+            verifierHash();
+        }
+    }
+
+    /**
+     * Joue un tour codé par {@link Tour}, comme
+     * {@link #makeMove(int, Coup.TypeCoup, Coup.TypeCoup, int)}
+     *
+     * @param tour le code du tour
+     */
+    public void makeMove(int tour) {
+        makeMove(Tour.position(tour), Tour.action1(tour), Tour.action2(tour), Tour.plateau(tour));
+    }
+
+    /**
+     * Annule le dernier tour joué avec {@link #makeMove}
+     */
+    public void unmakeMove() {
+        hashTransposee = annulations[--nbAnnulations];
+        hash = annulations[--nbAnnulations];
+        infos = (int) annulations[--nbAnnulations];
+        noirs = annulations[--nbAnnulations];
+        blancs = annulations[--nbAnnulations];
+        if (Zobrist.verification) {
+            verifierHash();
+        }
+    }
+
+    // Convertit l'état en chaîne, au même format que Jeu.getGameStateAsString()
+    public String getGameStateAsString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("etapeCoup:").append(getEtapeCoup()).append(";");
+        sb.append("JC:").append(getJoueurCourant()).append(";");
+        sb.append("C1:").append(getNbClones(1)).append(";");
+        sb.append("C2:").append(getNbClones(2)).append(";");
+        sb.append("P1:").append(Plateau.TypePlateau.values()[getProchainPlateau(1)]).append(";");
+        sb.append("P2:").append(Plateau.TypePlateau.values()[getProchainPlateau(2)]).append(";");
+        String[] prefixes = {"P:", "PR:", "F:"};
+        for (int plateau = PAST; plateau <= FUTURE; plateau++) {
+            sb.append(prefixes[plateau]);
+            for (int c = 0; c < NB_CASES; c++) {
+                sb.append((char) ('0' + getProprietaire(plateau * NB_CASES + c)));
+            }
+            sb.append(";");
+        }
+        sb.append("PC:null");
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof JeuCompact)) return false;
+        JeuCompact other = (JeuCompact) obj;
+        return blancs == other.blancs && noirs == other.noirs && infos == other.infos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+}
@@ -0,0 +1,83 @@
+package Modele;
+
+import java.util.Arrays;
+
+/**
+ * Liste de tours codés par {@link Tour}, rangés dans un tableau d'int
+ * réutilisé d'un appel à l'autre : la recherche de l'IA en garde une par
+ * profondeur et la vide au lieu d'en allouer une nouvelle à chaque noeud.
+ * Chaque tour a une note qui sert à l'ordre de la recherche.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class ListeTours {
+
+    private int[] tours;
+    private int[] notes;
+    private int taille = 0;
+
+    public ListeTours() {
+        this(64);
+    }
+
+    public ListeTours(int capacite) {
+        tours = new int[Math.max(1, capacite)];
+        notes = new int[tours.length];
+    }
+
+    public void vider() {
+        taille = 0;
+    }
+
+    public int taille() {
+        return taille;
+    }
+
+    public boolean estVide() {
+        return taille == 0;
+    }
+
+    public void ajouter(int tour) {
+        if (taille == tours.length) {
+            tours = Arrays.copyOf(tours, tours.length * 2);
+            notes = Arrays.copyOf(notes, tours.length);
+        }
+        tours[taille] = tour;
+        notes[taille] = 0;
+        taille++;
+    }
+
+    public int get(int i) {
+        return tours[i];
+    }
+
+    public int getNote(int i) {
+        return notes[i];
+    }
+
+    public void setNote(int i, int note) {
+        notes[i] = note;
+    }
+
+    /**
+     * Amène en position i le tour de meilleure note parmi les tours i et
+     * suivants (tri par sélection, fait au fur et à mesure de la recherche)
+     */
+    public void choisirSuivant(int i) {
+        int meilleur = i;
+        for (int j = i + 1; j < taille; j++) {
+            if (notes[j] > notes[meilleur]) {
+                meilleur = j;
+            }
+        }
+        if (meilleur != i) {
+            int tour = tours[i];
+            tours[i] = tours[meilleur];
+            tours[meilleur] = tour;
+            int note = notes[i];
+            notes[i] = notes[meilleur];
+            notes[meilleur] = note;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package Modele;
+
+/**
+ * Codage d'un tour complet dans un int, pour la recherche de l'IA.
+ *
+ * Un tour tient sur 14 bits : la case de la pièce jouée (bits 0-5, 63 si le
+ * joueur n'a pas de pièce sur son plateau), la première et la seconde action
+ * (bits 6-8 et 9-11, ordinal de {@link Coup.TypeCoup}, 7 s'il n'y en a pas) et
+ * le prochain plateau (bits 12-13). Deux tours égaux ont le même code, qui sert
+ * aussi de meilleur tour dans la table de transposition.
+ *
+ * Les tables rangées par hash canonique gardent les tours dans le sens de la
+ * forme canonique : {@link #transposer} donne le même tour sur la position
+ * transposée.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public final class Tour {
+
+    public static final int SANS_PIECE = 63;
+    public static final int SANS_ACTION = 7;
+    public static final int NB_ACTIONS = 1 << 6; // valeurs de actions(tour)
+
+    private static final int DECALAGE_ACTION1 = 6;
+    private static final int DECALAGE_ACTION2 = 9;
+    private static final int DECALAGE_PLATEAU = 12;
+
+    private static final Coup.TypeCoup[] TYPES = Coup.TypeCoup.values();
+    // Action transposée de chaque action (ordinal, puis SANS_ACTION) : UP et LEFT, DOWN et RIGHT s'échangent
+    private static final int[] ACTIONS_TRANSPOSEES = new int[SANS_ACTION + 1];
+
+    static {
+        for (int a = 0; a <= SANS_ACTION; a++) {
+            ACTIONS_TRANSPOSEES[a] = a;
+        }
+        echanger(Coup.TypeCoup.UP, Coup.TypeCoup.LEFT);
+        echanger(Coup.TypeCoup.DOWN, Coup.TypeCoup.RIGHT);
+    }
+
+    private static void echanger(Coup.TypeCoup a, Coup.TypeCoup b) {
+        ACTIONS_TRANSPOSEES[a.ordinal()] = b.ordinal();
+        ACTIONS_TRANSPOSEES[b.ordinal()] = a.ordinal();
+    }
+
+    private Tour() {
+    }
+
+    /**
+     * Code un tour
+     *
+     * @param position case de la pièce jouée, -1 s'il n'y en a pas
+     * @param action1 ordinal de la première action, -1 s'il n'y en a pas
+     * @param action2 ordinal de la seconde action, -1 s'il n'y en a pas
+     * @param plateau prochain plateau (PAST, PRESENT ou FUTURE)
+     * @return le code du tour
+     */
+    public static int coder(int position, int action1, int action2, int plateau) {
+        return (position < 0 ? SANS_PIECE : position)
+                | ((action1 < 0 ? SANS_ACTION : action1) << DECALAGE_ACTION1)
+                | ((action2 < 0 ? SANS_ACTION : action2) << DECALAGE_ACTION2)
+                | (plateau << DECALAGE_PLATEAU);
+    }
+
+    public static int coder(int position, Coup.TypeCoup action1, Coup.TypeCoup action2, int plateau) {
+        return coder(position, action1 == null ? -1 : action1.ordinal(), action2 == null ? -1 : action2.ordinal(), plateau);
+    }
+
+    /**
+     * @return la case de la pièce jouée, -1 s'il n'y en a pas
+     */
+    public static int position(int tour) {
+        int position = tour & 0x3F;
+        return position == SANS_PIECE ? -1 : position;
+    }
+
+    /**
+     * @return la première action, null s'il n'y en a pas
+     */
+    public static Coup.TypeCoup action1(int tour) {
+        int action = (tour >>> DECALAGE_ACTION1) & 7;
+        return action == SANS_ACTION ? null : TYPES[action];
+    }
+
+    /**
+     * @return la seconde action, null s'il n'y en a pas
+     */
+    public static Coup.TypeCoup action2(int tour) {
+        int action = (tour >>> DECALAGE_ACTION2) & 7;
+        return action == SANS_ACTION ? null : TYPES[action];
+    }
+
+    /**
+     * @return le prochain plateau (PAST, PRESENT ou FUTURE)
+     */
+    public static int plateau(int tour) {
+        return (tour >>> DECALAGE_PLATEAU) & 3;
+    }
+
+    /**
+     * @return les deux actions réunies, entre 0 et NB_ACTIONS - 1
+     */
+    public static int actions(int tour) {
+        return (tour >>> DECALAGE_ACTION1) & (NB_ACTIONS - 1);
+    }
+
+    /**
+     * @return le tour sans le prochain plateau : les tours qui ne diffèrent que
+     * par le plateau suivant ont la même pièce et les mêmes actions
+     */
+    public static int sansPlateau(int tour) {
+        return tour & ((1 << DECALAGE_PLATEAU) - 1);
+    }
+
+    /**
+     * @return le même tour avec un autre prochain plateau
+     */
+    public static int avecPlateau(int tour, int plateau) {
+        return sansPlateau(tour) | (plateau << DECALAGE_PLATEAU);
+    }
+
+    /**
+     * @return le même tour sur la position transposée (voir
+     * {@link JeuCompact#transposer()}) : la case est transposée, UP et LEFT,
+     * DOWN et RIGHT sont échangés. Transposer deux fois redonne le tour
+     */
+    public static int transposer(int tour) {
+        int position = tour & 0x3F;
+        int action1 = (tour >>> DECALAGE_ACTION1) & 7;
+        int action2 = (tour >>> DECALAGE_ACTION2) & 7;
+        return (position == SANS_PIECE ? SANS_PIECE : JeuCompact.transposee(position))
+                | (ACTIONS_TRANSPOSEES[action1] << DECALAGE_ACTION1)
+                | (ACTIONS_TRANSPOSEES[action2] << DECALAGE_ACTION2)
+                | (plateau(tour) << DECALAGE_PLATEAU);
+    }
+
+    public static String toString(int tour) {
+        String plateau = Plateau.TypePlateau.values()[plateau(tour)].toString();
+        int position = position(tour);
+        if (position < 0) {
+            return "null, null, null, " + plateau;
+        }
+        return "(" + JeuCompact.ligneDe(position) + "," + JeuCompact.colonneDe(position) + "), "
+                + action1(tour) + ", " + action2(tour) + ", " + plateau;
+    }
+}
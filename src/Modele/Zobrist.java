@@ -0,0 +1,97 @@
+package Modele;
+
+import java.util.Random;
+
+/**
+ * Clés de Zobrist pour le hachage 64 bits d'un {@link JeuCompact}.
+ *
+ * Le hash d'une position est le XOR des clés de chaque pièce (joueur, case sur
+ * les trois plateaux), du nombre de clones de chaque joueur, du prochain
+ * plateau de chaque joueur, du joueur courant et de l'étape du coup. Les clés
+ * sont tirées avec une graine fixe : un même état a le même hash d'une
+ * exécution à l'autre, ce qui permet de l'enregistrer dans des fichiers.
+ *
+ * Le hash de la position transposée (voir {@link JeuCompact#transposer()})
+ * prend les mêmes clés, avec la case transposée de chaque pièce.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public final class Zobrist {
+
+    private static final long GRAINE = 0x5454594B4D4C4C31L;
+
+    /**
+     * Si vrai, JeuCompact recalcule le hash complet après chaque tour joué ou
+     * annulé et le compare au hash incrémental. Activé avec
+     * -Dttykm.zobrist.verification=true
+     */
+    public static boolean verification = Boolean.getBoolean("ttykm.zobrist.verification");
+
+    static final long[][] PIECES = new long[2][JeuCompact.NB_POSITIONS];
+    static final long[][] CLONES = new long[2][256];
+    static final long[][] PROCHAIN = new long[2][3];
+    static final long JOUEUR2;
+    static final long[] ETAPE = new long[4];
+
+    static {
+        Random r = new Random(GRAINE);
+        for (int j = 0; j < 2; j++) {
+            for (int p = 0; p < JeuCompact.NB_POSITIONS; p++) {
+                PIECES[j][p] = r.nextLong();
+            }
+            for (int n = 0; n < CLONES[j].length; n++) {
+                CLONES[j][n] = r.nextLong();
+            }
+            for (int plateau = 0; plateau < 3; plateau++) {
+                PROCHAIN[j][plateau] = r.nextLong();
+            }
+        }
+        JOUEUR2 = r.nextLong();
+        for (int e = 0; e < ETAPE.length; e++) {
+            ETAPE[e] = r.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Calcule le hash complet d'un état, sans utiliser le hash incrémental
+     *
+     * @param jeu l'état à hacher
+     * @return le hash de Zobrist
+     */
+    public static long calculer(JeuCompact jeu) {
+        return calculer(jeu, false);
+    }
+
+    /**
+     * Calcule le hash complet de la transposée d'un état
+     *
+     * @param jeu l'état dont la transposée est hachée
+     * @return le hash de Zobrist de la transposée
+     */
+    public static long calculerTransposee(JeuCompact jeu) {
+        return calculer(jeu, true);
+    }
+
+    private static long calculer(JeuCompact jeu, boolean transposee) {
+        long h = 0L;
+        for (int j = 0; j < 2; j++) {
+            long pieces = jeu.getPieces(j + 1);
+            while (pieces != 0) {
+                int position = Long.numberOfTrailingZeros(pieces);
+                h ^= PIECES[j][transposee ? JeuCompact.transposee(position) : position];
+                pieces &= pieces - 1;
+            }
+            h ^= CLONES[j][jeu.getNbClones(j + 1)];
+            h ^= PROCHAIN[j][jeu.getProchainPlateau(j + 1)];
+        }
+        if (jeu.getJoueurCourant() == 2) {
+            h ^= JOUEUR2;
+        }
+        h ^= ETAPE[jeu.getEtapeCoup()];
+        return h;
+    }
+}
@@ -3,6 +3,7 @@ package Network;
 import Modele.Coup;
 import Modele.IAFields;
 import Modele.Jeu;
+import Modele.JeuCompact;
 import Modele.Joueur;
 import Modele.Piece;
 import Modele.Plateau;
@@ -32,12 +33,26 @@ public class AIClient implements GameStateUpdateListener, Runnable {
     // private int currentPosX = -1;
     // private int currentPosY = -1;
     IAFields<Piece,String,String,Plateau.TypePlateau> AImove = null; 
-    private IAminimax ia;
+    private MoteurIA ia;
+    // Réflexion pendant le tour de l'adversaire, coupée par -Dttykm.ia.ponderation=false
+    private Ponderation ponderation;
+    // Avec -Dttykm.ia.service=true, les tours sont cherchés par le service
+    // partagé au lieu d'un moteur propre à ce client
+    private ServiceIA service;
+    private int difficulte;
 
     public AIClient(String serverIpAddress, int difficuletAI) {
         this.serverIpAddress = serverIpAddress;
         this.gameInstance = new Jeu(); // Initialiser l'instance de jeu
-        ia = new IAminimax(difficuletAI, gameInstance);
+        this.difficulte = difficuletAI;
+        if (Boolean.getBoolean("ttykm.ia.service")) {
+            service = ServiceIA.partage();
+        } else {
+            ia = MoteurIA.creer(difficuletAI, gameInstance);
+            if (Boolean.parseBoolean(System.getProperty("ttykm.ia.ponderation", "true"))) {
+                ponderation = new Ponderation(ia);
+            }
+        }
         System.out.println(aiName + ": Initialisation de l'AIClient pour " + difficuletAI + " difficulté.");
     }
 
@@ -77,6 +92,10 @@ public class AIClient implements GameStateUpdateListener, Runnable {
 
     public void disconnect() {
         isRunning = false;
+        if (ponderation != null) {
+            ponderation.arreter();
+            System.out.println(aiName + ": Réflexion : " + ponderation.bilan());
+        }
         try {
             if (outputStream != null) outputStream.close();
             if (inputStream != null) inputStream.close();
@@ -136,6 +155,9 @@ public class AIClient implements GameStateUpdateListener, Runnable {
                         if (this.gameInstance.getJoueurCourant().getId() == this.myPlayerId) {
                                 System.out.println("BOT Adversaire ETAT:" + content);
                                 onGameStateUpdate(this.gameInstance); // Mettre à jour l'état du jeu
+                            } else if (ponderation != null && this.gameInstance.getEtape() == 0) {
+                                // L'adversaire commence son tour : l'IA réfléchit à ses réponses
+                                ponderation.demarrer(new JeuCompact(this.gameInstance));
                             }
                             break;
                         case GAGNE:
@@ -181,17 +203,27 @@ public class AIClient implements GameStateUpdateListener, Runnable {
         }
         
         System.out.println(aiName + " (ID: " + myPlayerId + "): C'est mon tour ! Prise de décision...");
+        // Le moteur ne cherche pas deux positions à la fois
+        int tourReflechi = ponderation == null ? -1 : ponderation.arreter(new JeuCompact(clone));
         try {
             
-            Thread.sleep(500); // L'IA "réfléchit" pendant 0,5-2 secondes
+            if (newGameState.getEtape() != 0) {
+                Thread.sleep(500); // Laisse voir chaque étape du tour de l'IA
+            }
             //L'ia joue un coup
             switch (newGameState.getEtape()) {
                 case 0: // AI peut calculer le coup ici
                     calculatedIn0 = true;
                     try {
-                        // IA choisit un coup
-                        System.out.println(aiName + "Calculer a l'etape 0");
-                        AImove = ia.coupIA(clone);
+                        if (tourReflechi >= 0) {
+                            // Tour déjà trouvé pendant le tour de l'adversaire
+                            System.out.println(aiName + ": tour trouvé pendant la réflexion");
+                            AImove = MoteurIA.versTourJeu(tourReflechi, clone);
+                        } else {
+                            // IA choisit un coup
+                            System.out.println(aiName + "Calculer a l'etape 0");
+                            AImove = chercherCoup(clone);
+                        }
                     } catch (Exception e) {
                         System.err.println(aiName + ": Exception lors du calcul du coup IA: " + e.getMessage());
                     }
@@ -216,7 +248,7 @@ public class AIClient implements GameStateUpdateListener, Runnable {
                         System.out.println(aiName + "Calculer a l'etape 3");
                         try {
                             // IA choisit un coup
-                            AImove = ia.coupIA(newGameState);
+                            AImove = chercherCoup(newGameState);
                         } catch (Exception e) {
                             System.err.println(aiName + ": Exception lors du calcul du coup IA: " + e.getMessage());
                         }
@@ -256,6 +288,16 @@ public class AIClient implements GameStateUpdateListener, Runnable {
         
     }
 
+    // Cherche le tour de l'IA avec son moteur ou le service partagé
+    private IAFields<Piece, String, String, Plateau.TypePlateau> chercherCoup(Jeu jeu) throws Exception {
+        if (service == null) {
+            return ia.coupIA(jeu);
+        }
+        int tour = service.demander(aiName + "-" + System.identityHashCode(this), new JeuCompact(jeu), difficulte,
+                ServiceIA.budgetParDefaut(difficulte)).get();
+        return tour < 0 ? null : MoteurIA.versTourJeu(tour, jeu);
+    }
+
     protected String joueCoup(Jeu jeu,int numCoup){
         if (AImove == null) {
             System.out.println("Erreur, le coup de l'IA est null");
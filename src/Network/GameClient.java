@@ -24,7 +24,7 @@ public class GameClient {
     private volatile boolean isConnected = false; // Pour vérifier l'état de la connexion
     private volatile boolean gameEnded = false; // Pour indiquer si le jeu est terminé
     private ObjectInputStream inputStream;
-    private IAminimax ia;
+    private MoteurIA ia;
 
     public GameClient(String ipAddress, GameStateUpdateListener listener) {
         this.serverIpAddress = ipAddress;
@@ -32,7 +32,7 @@ public class GameClient {
         this.gameInstance = new Jeu(); // Initialiser une copie locale du jeu
                                       // Joueur 1 et Joueur 2 sont créés avec des ID par défaut 1 et 2 dans Jeu
         this.aiClient = new AIClient(ipAddress, 5); // Initialiser l'IA avec l'instance de jeu
-        this.ia = new IAminimax(5, gameInstance); // Initialiser l'IA avec l'instance de jeu
+        this.ia = MoteurIA.creer(5, gameInstance); // Initialiser l'IA avec l'instance de jeu
     }
 
     public void connect() throws IOException {
@@ -0,0 +1,573 @@
+package Network;
+
+import Modele.GenerateurTours;
+import Modele.JeuCompact;
+import Modele.ListeTours;
+import Modele.Tour;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * IA par recherche arborescente Monte-Carlo (MCTS) avec sélection UCT, autre
+ * moteur que {@link IAminimax} derrière {@link MoteurIA}.
+ *
+ * Chaque itération descend l'arbre en choisissant l'enfant de meilleure
+ * borne UCT, développe la feuille atteinte (tous ses tours, dans un ordre tiré
+ * au hasard), puis lance une simulation depuis cette feuille : des tours au
+ * hasard sur l'état compact, jusqu'à la fin de la partie ou jusqu'à la
+ * profondeur des simulations, où l'heuristique de IAminimax donne une
+ * probabilité de gain. Le résultat remonte le long du chemin.
+ *
+ * L'arbre est rangé dans des tableaux de primitifs, un indice par noeud, les
+ * enfants d'un noeud étant contigus. Entre deux tours, le sous-arbre de la
+ * nouvelle position (le tour joué puis la réponse de l'adversaire) est gardé.
+ *
+ * Avec plusieurs threads (-Dttykm.ia.threads), -Dttykm.ia.mcts.parallelisme
+ * choisit la répartition :
+ * ARBRE : tous les threads partagent l'arbre, la descente et la remontée se
+ * font sous verrou et les simulations en dehors ; une perte virtuelle
+ * (visite comptée dès la descente) écarte les autres threads du même chemin.
+ * RACINE : chaque thread a son propre arbre, et les visites des tours de la
+ * racine sont additionnées à la fin.
+ *
+ * Le tour joué est l'enfant de la racine le plus visité.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class IAmcts implements MoteurIA {
+
+    /**
+     * Répartition de la recherche quand il y a plusieurs threads
+     */
+    public enum ModeParallele {
+        ARBRE, // un arbre commun, avec perte virtuelle
+        RACINE // un arbre par thread, visites de la racine additionnées
+    }
+
+    private static final double C_UCT = 0.7; // exploration, pour des résultats entre 0 et 1
+    private static final double K_SIGMOIDE = 1.0 / 160; // score de l'heuristique -> probabilité de gain
+    private static final int CAPACITE = 1 << 19; // noeuds par arbre
+    private static final int INCONNU = -1; // état d'un noeud pas encore visité
+
+    /**
+     * Arbre de recherche. Tous les accès se font sous le verrou de l'arbre.
+     */
+    private static final class Arbre {
+
+        final int capacite;
+        int[] tour; // tour qui mène au noeud
+        int[] parent;
+        int[] premier; // premier enfant, -1 si le noeud n'est pas développé
+        int[] nbEnfants;
+        int[] visites; // perte virtuelle comprise pendant une itération
+        float[] gains; // somme des résultats pour le joueur qui a joué le tour
+        long[] hash; // 0 tant que le noeud n'est pas visité
+        byte[] fin; // INCONNU, 0 si la partie continue, sinon le vainqueur
+        int taille;
+        int racine;
+
+        Arbre(int capacite) {
+            this.capacite = capacite;
+            tour = new int[capacite];
+            parent = new int[capacite];
+            premier = new int[capacite];
+            nbEnfants = new int[capacite];
+            visites = new int[capacite];
+            gains = new float[capacite];
+            hash = new long[capacite];
+            fin = new byte[capacite];
+        }
+
+        void vider(JeuCompact position) {
+            taille = 0;
+            racine = nouveau(-1, -1);
+            hash[racine] = position.getHash();
+            fin[racine] = 0;
+        }
+
+        int nouveau(int t, int p) {
+            int n = taille++;
+            tour[n] = t;
+            parent[n] = p;
+            premier[n] = -1;
+            nbEnfants[n] = 0;
+            visites[n] = 0;
+            gains[n] = 0;
+            hash[n] = 0;
+            fin[n] = INCONNU;
+            return n;
+        }
+
+        // Copie le sous-arbre de n dans l'arbre vide dest, n devenant la racine
+        void copierSousArbre(int n, Arbre dest) {
+            dest.taille = 0;
+            dest.racine = dest.nouveau(tour[n], -1);
+            copierNoeud(n, dest, dest.racine);
+            // Parcours en largeur : les enfants d'un noeud restent contigus
+            int[] file = new int[taille];
+            int debut = 0;
+            int finFile = 0;
+            file[finFile++] = n;
+            int[] copies = new int[taille];
+            copies[0] = dest.racine;
+            while (debut < finFile) {
+                int source = file[debut];
+                int copie = copies[debut];
+                debut++;
+                if (premier[source] < 0) {
+                    continue;
+                }
+                dest.premier[copie] = dest.taille;
+                dest.nbEnfants[copie] = nbEnfants[source];
+                for (int k = 0; k < nbEnfants[source]; k++) {
+                    int enfant = premier[source] + k;
+                    int c = dest.nouveau(tour[enfant], copie);
+                    copierNoeud(enfant, dest, c);
+                    file[finFile] = enfant;
+                    copies[finFile] = c;
+                    finFile++;
+                }
+            }
+        }
+
+        private void copierNoeud(int n, Arbre dest, int c) {
+            dest.visites[c] = visites[n];
+            dest.gains[c] = gains[n];
+            dest.hash[c] = hash[n];
+            dest.fin[c] = fin[n];
+        }
+    }
+
+    // État propre à un thread de recherche
+    private static final class Simulateur {
+
+        final GenerateurTours generateur = new GenerateurTours();
+        final GenerateurTours generateurSimulation = new GenerateurTours();
+        final ListeTours tours = new ListeTours();
+        final int[] chemin = new int[512];
+        Random r;
+        JeuCompact etat;
+        long simulations;
+
+        Simulateur(long graine) {
+            generateurSimulation.setDedoublonnage(false); // un tirage au hasard n'a pas besoin de tours distincts
+            r = new Random(graine);
+        }
+    }
+
+    private int profondeurSimulation;
+    private long tempsMs;
+    private long iterationsMax; // 0 : seulement le temps
+    private int threads = 1;
+    private ModeParallele modeParallele = ModeParallele.ARBRE;
+    private ExecutorService pool;
+    private boolean verbeux = true;
+    private long simulations;
+    private volatile boolean arret; // demandé par interrompre()
+    private long graine = System.nanoTime();
+    private PoidsHeuristique poids;
+    private Arbre arbre = new Arbre(CAPACITE);
+    private Arbre reserve; // arbre vide où recopier le sous-arbre gardé
+    private final List<Arbre> arbresAuxiliaires = new ArrayList<>(); // mode RACINE
+    private boolean arbreValide; // l'arbre vient du tour précédent de cette partie
+
+    /**
+     * @param diff difficulté de 1 à 5 : elle donne le temps par tour (comme
+     * IAminimax) et la profondeur des simulations
+     */
+    public IAmcts(int diff) {
+        // Plus la difficulté est haute, plus l'heuristique intervient tôt
+        if (diff >= 5) {
+            setLimites(4, 2000);
+            poids = PoidsHeuristique.pourMode("HARD");
+        } else if (diff >= 3) {
+            setLimites(8, 1000);
+            poids = PoidsHeuristique.pourMode("MEDIUM");
+        } else {
+            setLimites(200, 500);
+            poids = PoidsHeuristique.pourMode("MEDIUM");
+        }
+        try {
+            setModeParallele(ModeParallele.valueOf(System.getProperty("ttykm.ia.mcts.parallelisme", "ARBRE")));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Mode parallèle inconnu : " + System.getProperty("ttykm.ia.mcts.parallelisme"));
+        }
+        setThreads(Integer.getInteger("ttykm.ia.threads", 1));
+    }
+
+    /**
+     * @param profondeur nombre maximal de tours joués au hasard par
+     * simulation avant d'évaluer la position
+     * @param tempsMs temps maximal par tour en millisecondes
+     */
+    @Override
+    public void setLimites(int profondeur, long tempsMs) {
+        this.profondeurSimulation = Math.max(0, profondeur);
+        this.tempsMs = Math.max(1, tempsMs);
+    }
+
+    @Override
+    public void setTemps(long tempsMs) {
+        this.tempsMs = Math.max(1, tempsMs);
+    }
+
+    /**
+     * Arrête aussi la recherche après un nombre d'itérations (tous threads
+     * confondus, à peu près), pour des mesures à travail égal
+     *
+     * @param iterations 0 pour n'arrêter qu'au bout du temps
+     */
+    public void setIterationsMax(long iterations) {
+        this.iterationsMax = Math.max(0, iterations);
+    }
+
+    @Override
+    public void setThreads(int threads) {
+        threads = Math.max(1, threads);
+        if (threads != this.threads && pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        this.threads = threads;
+        if (threads > 1 && pool == null) {
+            pool = Executors.newFixedThreadPool(threads - 1, r -> {
+                Thread t = new Thread(r, "IAmcts");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public void setModeParallele(ModeParallele modeParallele) {
+        this.modeParallele = modeParallele;
+    }
+
+    /**
+     * Change les poids de l'heuristique qui évalue la fin des simulations
+     */
+    public void setPoids(PoidsHeuristique poids) {
+        this.poids = poids;
+    }
+
+    @Override
+    public void setGraine(long graine) {
+        this.graine = graine;
+    }
+
+    @Override
+    public void interrompre() {
+        arret = true;
+    }
+
+    @Override
+    public void nouvellePartie() {
+        arbreValide = false;
+    }
+
+    @Override
+    public long getNoeuds() {
+        return simulations;
+    }
+
+    @Override
+    public void setVerbeux(boolean verbeux) {
+        this.verbeux = verbeux;
+    }
+
+    @Override
+    public int chercherTour(JeuCompact position) {
+        long debut = System.nanoTime();
+        long limite = debut + tempsMs * 1000000L;
+        arret = false;
+        int joueur = position.getJoueurCourant();
+        Simulateur principal = new Simulateur(graine++);
+        principal.etat = new JeuCompact(position);
+
+        // Pas de recherche si le joueur n'a qu'un tour ou peut gagner tout de suite
+        principal.generateur.generer(principal.etat, principal.tours);
+        if (principal.tours.estVide()) {
+            return -1;
+        }
+        int meilleur = principal.tours.get(0);
+        for (int i = 0; i < principal.tours.taille(); i++) {
+            int t = principal.tours.get(i);
+            principal.etat.makeMove(t);
+            int gagnant = vainqueur(principal.etat, joueur);
+            principal.etat.unmakeMove();
+            if (principal.tours.taille() == 1 || gagnant == joueur) {
+                simulations = 0;
+                return t;
+            }
+        }
+
+        reprendreArbre(position);
+        int reprises = arbre.visites[arbre.racine];
+
+        List<Simulateur> simulateurs = new ArrayList<>();
+        simulateurs.add(principal);
+        List<Arbre> arbres = new ArrayList<>();
+        arbres.add(arbre);
+        for (int k = 1; k < threads; k++) {
+            Simulateur s = new Simulateur(graine++);
+            s.etat = new JeuCompact(position);
+            simulateurs.add(s);
+            if (modeParallele == ModeParallele.RACINE) {
+                if (arbresAuxiliaires.size() < k) {
+                    arbresAuxiliaires.add(new Arbre(CAPACITE / threads));
+                }
+                Arbre a = arbresAuxiliaires.get(k - 1);
+                a.vider(position);
+                arbres.add(a);
+            } else {
+                arbres.add(arbre);
+            }
+        }
+        long parThread = iterationsMax == 0 ? Long.MAX_VALUE : Math.max(1, iterationsMax / threads);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int k = 1; k < threads; k++) {
+            Simulateur s = simulateurs.get(k);
+            Arbre a = arbres.get(k);
+            futures.add(pool.submit(() -> chercher(a, s, limite, parThread)));
+        }
+        chercher(arbre, principal, limite, parThread);
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println("IAmcts: erreur d'un thread de recherche : " + e);
+            }
+        }
+
+        // Visites de chaque tour de la racine, tous arbres confondus
+        Map<Integer, Integer> visites = new HashMap<>();
+        Map<Integer, Float> gains = new HashMap<>();
+        for (Arbre a : modeParallele == ModeParallele.RACINE ? arbres : List.of(arbre)) {
+            for (int k = 0; k < a.nbEnfants[a.racine]; k++) {
+                int c = a.premier[a.racine] + k;
+                visites.merge(a.tour[c], a.visites[c], Integer::sum);
+                gains.merge(a.tour[c], a.gains[c], Float::sum);
+            }
+        }
+        int plusVisite = -1;
+        for (Map.Entry<Integer, Integer> e : visites.entrySet()) {
+            int v = e.getValue();
+            if (v > plusVisite || (v == plusVisite && gains.get(e.getKey()) > gains.get(meilleur))) {
+                plusVisite = v;
+                meilleur = e.getKey();
+            }
+        }
+
+        simulations = 0;
+        for (Simulateur s : simulateurs) {
+            simulations += s.simulations;
+        }
+        if (verbeux) {
+            long duree = (System.nanoTime() - debut) / 1000000;
+            System.out.println("IAmcts: " + simulations + " simulations en " + duree + " ms (" + reprises
+                    + " reprises du tour précédent), " + arbre.taille + " noeuds, tour " + Tour.toString(meilleur)
+                    + " (" + plusVisite + " visites, " + String.format("%.3f", gains.getOrDefault(meilleur, 0f) / Math.max(1, plusVisite)) + ")");
+        }
+        return meilleur;
+    }
+
+    // Garde le sous-arbre de la position s'il vient du tour précédent (même
+    // position, ou un tour de l'IA puis un de l'adversaire), sinon repart de zéro
+    private void reprendreArbre(JeuCompact position) {
+        long h = position.getHash();
+        int trouve = -1;
+        if (arbreValide) {
+            int racine = arbre.racine;
+            if (arbre.hash[racine] == h) {
+                trouve = racine;
+            }
+            for (int k = 0; trouve < 0 && k < arbre.nbEnfants[racine]; k++) {
+                int c = arbre.premier[racine] + k;
+                if (arbre.hash[c] == h) {
+                    trouve = c;
+                }
+                for (int j = 0; trouve < 0 && arbre.premier[c] >= 0 && j < arbre.nbEnfants[c]; j++) {
+                    int pc = arbre.premier[c] + j;
+                    if (arbre.hash[pc] == h) {
+                        trouve = pc;
+                    }
+                }
+            }
+        }
+        if (trouve == arbre.racine) {
+            // Même position (l'IA est rappelée pour le même tour) : rien à copier
+        } else if (trouve >= 0) {
+            if (reserve == null) {
+                reserve = new Arbre(CAPACITE);
+            }
+            arbre.copierSousArbre(trouve, reserve);
+            Arbre ancien = arbre;
+            arbre = reserve;
+            reserve = ancien;
+        } else {
+            arbre.vider(position);
+        }
+        arbreValide = true;
+    }
+
+    // Itérations d'un thread jusqu'à la limite de temps
+    private void chercher(Arbre a, Simulateur s, long limite, long iterations) {
+        for (long i = 0; i < iterations && (i == 0 || System.nanoTime() < limite) && !arret; i++) {
+            if (!iterer(a, s)) {
+                break;
+            }
+        }
+    }
+
+    // Une itération : descente, développement, simulation, remontée. Faux si
+    // l'arbre est plein et la racine ne peut plus rien apprendre
+    private boolean iterer(Arbre a, Simulateur s) {
+        JeuCompact etat = s.etat;
+        int joueurRacine = etat.getJoueurCourant();
+        int profondeur = 0;
+        int n;
+        synchronized (a) {
+            n = a.racine;
+            a.visites[n]++;
+            while (a.fin[n] == 0) {
+                if (a.premier[n] < 0) {
+                    // Une feuille n'est développée qu'à sa deuxième visite
+                    if (a.visites[n] <= 1 && n != a.racine) {
+                        break;
+                    }
+                    s.generateur.generer(etat, s.tours);
+                    if (s.tours.estVide()) {
+                        // Pas de tour : le joueur courant a déjà gagné
+                        a.fin[n] = (byte) etat.getJoueurCourant();
+                        break;
+                    }
+                    if (a.taille + s.tours.taille() > a.capacite) {
+                        if (n == a.racine) {
+                            a.visites[n]--;
+                            return false;
+                        }
+                        break;
+                    }
+                    developper(a, n, s);
+                }
+                int joueur = etat.getJoueurCourant();
+                n = choisir(a, n);
+                etat.makeMove(a.tour[n]);
+                s.chemin[profondeur++] = n;
+                a.visites[n]++; // perte virtuelle jusqu'à la remontée
+                if (a.fin[n] == INCONNU) {
+                    a.hash[n] = etat.getHash();
+                    a.fin[n] = (byte) vainqueur(etat, joueur);
+                }
+                if (profondeur == s.chemin.length) {
+                    break;
+                }
+            }
+        }
+
+        // Résultat pour le joueur 1, entre 0 et 1
+        double resultat;
+        if (a.fin[n] > 0) {
+            resultat = a.fin[n] == 1 ? 1 : 0;
+        } else {
+            resultat = simuler(etat, s);
+        }
+        for (int k = 0; k < profondeur; k++) {
+            etat.unmakeMove();
+        }
+        s.simulations++;
+
+        synchronized (a) {
+            // Le noeud de profondeur d a été joué par le joueur de la racine si d est impair
+            for (int d = profondeur; d >= 1; d--) {
+                int m = s.chemin[d - 1];
+                int auteur = d % 2 == 1 ? joueurRacine : 3 - joueurRacine;
+                a.gains[m] += (float) (auteur == 1 ? resultat : 1 - resultat);
+            }
+        }
+        return true;
+    }
+
+    private static void developper(Arbre a, int n, Simulateur s) {
+        ListeTours tours = s.tours;
+        int premier = a.taille;
+        a.premier[n] = premier;
+        a.nbEnfants[n] = tours.taille();
+        for (int i = 0; i < tours.taille(); i++) {
+            a.nouveau(tours.get(i), n);
+        }
+        // Ordre au hasard, pour que les enfants pas encore visités soient tirés équitablement
+        for (int i = tours.taille() - 1; i > 0; i--) {
+            int j = s.r.nextInt(i + 1);
+            int t = a.tour[premier + i];
+            a.tour[premier + i] = a.tour[premier + j];
+            a.tour[premier + j] = t;
+        }
+    }
+
+    // Enfant de meilleure borne UCT, un enfant pas encore visité d'abord
+    private static int choisir(Arbre a, int n) {
+        double logN = Math.log(a.visites[n]);
+        int meilleur = -1;
+        double meilleurScore = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < a.nbEnfants[n]; k++) {
+            int c = a.premier[n] + k;
+            int v = a.visites[c];
+            if (v == 0) {
+                return c;
+            }
+            double score = a.gains[c] / v + C_UCT * Math.sqrt(logN / v);
+            if (score > meilleurScore) {
+                meilleurScore = score;
+                meilleur = c;
+            }
+        }
+        return meilleur;
+    }
+
+    // Simulation depuis l'état : des tours au hasard, puis l'heuristique si la
+    // partie n'est pas finie. L'état est rendu tel quel
+    private double simuler(JeuCompact etat, Simulateur s) {
+        double resultat = -1;
+        int joues = 0;
+        while (joues < profondeurSimulation) {
+            s.generateurSimulation.generer(etat, s.tours);
+            if (s.tours.estVide()) {
+                resultat = etat.getJoueurCourant() == 1 ? 1 : 0;
+                break;
+            }
+            int joueur = etat.getJoueurCourant();
+            etat.makeMove(s.tours.get(s.r.nextInt(s.tours.taille())));
+            joues++;
+            int gagnant = vainqueur(etat, joueur);
+            if (gagnant != 0) {
+                resultat = gagnant == 1 ? 1 : 0;
+                break;
+            }
+        }
+        if (resultat < 0) {
+            int score = IAminimax.evaluer(etat, 1, poids);
+            resultat = 1 / (1 + Math.exp(-K_SIGMOIDE * score));
+        }
+        for (int k = 0; k < joues; k++) {
+            etat.unmakeMove();
+        }
+        return resultat;
+    }
+
+    // Le vainqueur après le tour du joueur, 0 si la partie continue
+    private static int vainqueur(JeuCompact etat, int joueur) {
+        if (etat.gameOver(joueur) != 0) {
+            return joueur;
+        }
+        return etat.gameOver(3 - joueur);
+    }
+}
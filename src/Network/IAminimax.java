@@ -1,27 +1,58 @@
 package Network;
 
-import Modele.Coup;
 import Modele.Couple;
+import Modele.GenerateurTours;
 import Modele.IAFields;
 import Modele.Jeu;
-import Modele.Joueur;
+import Modele.JeuCompact;
+import Modele.ListeTours;
 import Modele.Piece;
 import Modele.Plateau;
-import java.awt.*;
+import Modele.Tour;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IAminimax implements MoteurIA {
+
+    /**
+     * Répartition de la recherche quand il y a plusieurs threads
+     */
+    public enum ModeParallele {
+        RACINE, // les tours de la racine sont partagés entre les threads
+        LAZY_SMP // des threads auxiliaires cherchent la même racine et remplissent la table
+    }
 
-public class IAminimax {
-
-    private static class Memoisation {
-
-        int evaluation;
-        int profondeur;
-
-        Memoisation(int evaluation, int profondeur) {
-            this.evaluation = evaluation;
-            this.profondeur = profondeur;
+    // État propre à un thread de recherche
+    private static final class Recherche {
+
+        JeuCompact etat; // état modifié par makeMove/unmakeMove
+        final JeuCompact brouillon = new JeuCompact(); // état de travail de noterTours
+        final GenerateurTours generateur = new GenerateurTours();
+        int profondeurRecherche; // profondeur de l'itération en cours
+        int reduction; // demi-coups retirés par les réductions en cours (coup nul, LMR)
+        boolean sansCoupNul; // le noeud suivant ne doit pas essayer le coup nul
+        final StatsRecherche stats = new StatsRecherche(); // compteurs de ce thread, noeuds compris
+        AtomicInteger alphaRacine; // alpha partagé de la racine, null en séquentiel
+        boolean aide; // thread auxiliaire du mode LAZY_SMP
+        final int[][] meurtriers = new int[PROFONDEUR_RECHERCHE_MAX + 1][2]; // coups meurtriers par profondeur
+        final int[][][] historique = new int[3][JeuCompact.NB_CASES][Tour.NB_ACTIONS]; // [plateau][case][action1, action2]
+        final ListeTours[] listes = new ListeTours[PROFONDEUR_RECHERCHE_MAX + QUIESCENCE_MAX + 1]; // tours de chaque profondeur, réutilisés
+
+        Recherche(JeuCompact etat) {
+            this.etat = etat;
+            for (int i = 0; i < listes.length; i++) {
+                listes[i] = new ListeTours();
+            }
+            oublierOrdre(this);
         }
     }
 
@@ -30,89 +61,510 @@ public class IAminimax {
     private Jeu jeu;
     private final int PROFONDEUR_MAX = 5;
     private int difficulte = 100;
+    private int profondeurLimite; // profondeur maximale de l'approfondissement itératif
+    private long tempsMs; // budget de temps par tour
+    private volatile long limite; // échéance de la recherche (System.nanoTime)
+    private volatile boolean peutArreter; // faux tant que la première itération n'est pas finie
+    private volatile boolean arret;
+    private volatile boolean finAides; // arrête les threads auxiliaires du mode LAZY_SMP
+    private volatile int profondeurPrincipale; // itération en cours du thread principal
+    private int threads = 1;
+    private ModeParallele modeParallele = ModeParallele.LAZY_SMP;
+    private ForkJoinPool pool;
+    private boolean verbeux = true;
+    private boolean pvs = true;
+    private long noeuds; // noeuds du dernier coupIA, tous threads confondus
+    private int score; // score du tour choisi par le dernier coupIA
+    private StatsRecherche stats = new StatsRecherche(); // mesures du dernier coupIA
+    private boolean journalStats = Boolean.getBoolean("ttykm.ia.stats");
+    private LivreOuvertures livre; // null : pas de livre
+    private TableFinales finales; // null : pas de table de finales
     private String mode = "";
     private Random r = new Random();
-    private static HashMap<String, Memoisation> memoisation = new HashMap<>();
-    ArrayList<Integer> poids = new ArrayList<>();
+    private static final int TAILLE_TABLE_MO = 16;
+    private static final int MAT = 1000000;
+    private static final int PROFONDEUR_RECHERCHE_MAX = 63;
+    private static final int FENETRE_ASPIRATION = 25; // une pièce de matériel
+    private static final int QUIESCENCE_MAX = 8;
+    private static final int DELTA_QUIESCENCE = 3 * FENETRE_ASPIRATION; // deux pièces détruites et une marge
+    private int quiescence; // demi-coups bruyants au plus après la profondeur nominale, 0 sans quiescence
+    private int reductionCoupNul; // réduction du coup nul, 0 sans coup nul
+    private int premierTourReduit; // rang du premier tour réduit par LMR, 0 sans LMR
+    private static final int RESTANTE_MIN_REDUCTION = 3; // pas de réduction près des feuilles
+    private final TableTransposition table;
+    private final Recherche principale = new Recherche(null);
+    private PoidsHeuristique poidsHard = PoidsHeuristique.pourMode("HARD");
+    private PoidsHeuristique poidsMedium = PoidsHeuristique.pourMode("MEDIUM"); // EASY, MEDIUM et départage des tours
 
     //builder de l'ia
     public IAminimax(int diff, Jeu jeu) {
+        this(diff, jeu, TAILLE_TABLE_MO);
+    }
+
+    public IAminimax(int diff, Jeu jeu, int tailleTableMo) {
+        this(diff, jeu, new TableTransposition(tailleTableMo));
+    }
+
+    /**
+     * Crée une IA qui cherche dans une table de transposition donnée. La table
+     * est sans verrou : plusieurs IA peuvent la partager, si elles jouent
+     * toutes pour le même joueur (les scores de la table sont du point de vue
+     * de l'IA)
+     */
+    public IAminimax(int diff, Jeu jeu, TableTransposition table) {
         if (diff > PROFONDEUR_MAX) {
             diff = PROFONDEUR_MAX;
         }
         this.difficulte = diff;
         this.jeu = jeu;
+        // La difficulté donne une profondeur maximale et un temps par tour
         if (diff >= PROFONDEUR_MAX) {
             this.mode = "HARD";
+            setLimites(8, 2000);
+            setQuiescence(4);
+            setCoupNul(2);
+            setLMR(3);
         } else if (diff >= 3) {
             this.mode = "MEDIUM";
+            setLimites(diff, 1000);
+            setQuiescence(2);
         } else {
             this.mode = "EASY";
+            setLimites(diff, 500);
+        }
+        this.table = table;
+        // EASY joue sans livre ni table de finales, pour rester battable
+        if (diff >= 3) {
+            this.livre = LivreOuvertures.parDefaut();
+            this.finales = TableFinales.parDefaut();
+        }
+        try {
+            setModeParallele(ModeParallele.valueOf(System.getProperty("ttykm.ia.parallelisme", "LAZY_SMP")));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Mode parallèle inconnu : " + System.getProperty("ttykm.ia.parallelisme"));
+        }
+        setThreads(Integer.getInteger("ttykm.ia.threads", 1));
+
+    }
+
+    /**
+     * Change les limites de la recherche
+     *
+     * @param profondeur profondeur maximale de l'approfondissement itératif
+     * @param tempsMs temps maximal par tour en millisecondes ; la première
+     * itération est toujours terminée
+     */
+    @Override
+    public void setLimites(int profondeur, long tempsMs) {
+        this.profondeurLimite = Math.max(1, Math.min(profondeur, PROFONDEUR_RECHERCHE_MAX));
+        this.tempsMs = Math.max(1, tempsMs);
+    }
+
+    @Override
+    public void setTemps(long tempsMs) {
+        this.tempsMs = Math.max(1, tempsMs);
+    }
+
+    /**
+     * Règle la recherche de quiescence : aux feuilles, les tours bruyants
+     * (qui détruisent des pièces) sont encore joués jusqu'à une position calme,
+     * sur au plus ce nombre de demi-coups. Par défaut 4 en HARD, 2 en MEDIUM
+     * et 0 en EASY
+     *
+     * @param demiCoups 0 pour évaluer les feuilles telles quelles
+     */
+    public void setQuiescence(int demiCoups) {
+        this.quiescence = Math.max(0, Math.min(demiCoups, QUIESCENCE_MAX));
+    }
+
+    /**
+     * Règle le coup nul : avant de chercher ses tours, le joueur passe (même
+     * plateau, aucune pièce jouée) et l'adversaire est cherché moins profond
+     * avec une fenêtre nulle. Si même ainsi le score dépasse la fenêtre, le
+     * noeud est vérifié par une recherche réduite sans coup nul avant d'être
+     * coupé (un joueur peut être obligé de jouer un tour qui lui nuit). Par
+     * défaut 2 en HARD, sans coup nul sinon
+     *
+     * @param reduction demi-coups retirés, 0 sans coup nul
+     */
+    public void setCoupNul(int reduction) {
+        this.reductionCoupNul = Math.max(0, reduction);
+    }
+
+    /**
+     * Règle les réductions des derniers tours (LMR) : après les premiers
+     * tours d'un noeud, les tours calmes (ni tour de la table, ni prise, ni
+     * coup meurtrier) sont cherchés un demi-coup moins profond, et recherchés
+     * à la profondeur normale s'ils font mieux que prévu. Par défaut à partir
+     * du 4e tour en HARD, sans réduction sinon
+     *
+     * @param premierTour rang (à partir de 0) du premier tour réduit, 0 sans
+     * LMR
+     */
+    public void setLMR(int premierTour) {
+        this.premierTourReduit = Math.max(0, premierTour);
+    }
+
+    /**
+     * Change des réglages de la recherche, écrits "nom=valeur" et séparés par
+     * des virgules (options de Banc.Tournoi). Noms : quiescence, coupnul, lmr
+     *
+     * @throws IllegalArgumentException si un nom est inconnu ou une valeur
+     * n'est pas un entier
+     */
+    public void regler(String reglages) {
+        for (String morceau : reglages.split(",")) {
+            morceau = morceau.trim();
+            if (morceau.isEmpty()) {
+                continue;
+            }
+            int egal = morceau.indexOf('=');
+            if (egal < 0) {
+                throw new IllegalArgumentException("IAminimax: \"nom=valeur\" attendu : " + morceau);
+            }
+            String nom = morceau.substring(0, egal).trim();
+            int valeur = Integer.parseInt(morceau.substring(egal + 1).trim());
+            switch (nom) {
+                case "quiescence":
+                    setQuiescence(valeur);
+                    break;
+                case "coupnul":
+                    setCoupNul(valeur);
+                    break;
+                case "lmr":
+                    setLMR(valeur);
+                    break;
+                default:
+                    throw new IllegalArgumentException("IAminimax: réglage inconnu : " + nom);
+            }
+        }
+    }
+
+    /**
+     * Nombre de threads de la recherche, réparti selon le mode parallèle. Par
+     * défaut, la valeur de -Dttykm.ia.threads
+     *
+     * @param threads nombre de threads, 1 pour la recherche séquentielle
+     */
+    @Override
+    public void setThreads(int threads) {
+        threads = Math.max(1, threads);
+        if (threads != this.threads && pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        this.threads = threads;
+        if (threads > 1 && pool == null) {
+            pool = new ForkJoinPool(threads);
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Choisit la répartition de la recherche sur les threads.
+     *
+     * RACINE : le premier tour de la racine est cherché seul pour obtenir une
+     * borne, puis les autres sont répartis sur un ForkJoinPool et partagent
+     * alpha. Le tour choisi ne dépend pas de l'ordre des threads.
+     *
+     * LAZY_SMP : le thread principal fait sa recherche habituelle pendant que
+     * les auxiliaires cherchent la même racine, une profondeur sur deux un cran
+     * plus loin, et remplissent la table de transposition commune. Seul le
+     * résultat du thread principal compte. Plus rapide, mais pas reproductible.
+     *
+     * Par défaut, la valeur de -Dttykm.ia.parallelisme (LAZY_SMP sinon)
+     */
+    public void setModeParallele(ModeParallele modeParallele) {
+        this.modeParallele = modeParallele;
+    }
+
+    /**
+     * Fixe la graine du tirage entre les tours de même score, pour rejouer
+     * exactement les mêmes choix
+     */
+    @Override
+    public void setGraine(long graine) {
+        this.r = new Random(graine);
+    }
+
+    /**
+     * Active ou coupe la recherche PVS (fenêtres nulles après le premier tour
+     * de chaque noeud) et les fenêtres d'aspiration à la racine. Activées par
+     * défaut ; les couper sert à comparer le nombre de noeuds
+     */
+    public void setPVS(boolean pvs) {
+        this.pvs = pvs;
+    }
+
+    /**
+     * @return le nombre de noeuds cherchés par le dernier coupIA, tous threads
+     * confondus
+     */
+    @Override
+    public long getNoeuds() {
+        return noeuds;
+    }
+
+    /**
+     * @return les mesures du dernier coupIA : noeuds, coupures, table de
+     * transposition, profondeurs, temps par itération
+     */
+    public StatsRecherche getStats() {
+        return stats;
+    }
+
+    /**
+     * Écrit ou non les mesures de chaque recherche sur une ligne JSON de la
+     * sortie standard, même sans messages (-Dttykm.ia.stats=true)
+     */
+    public void setJournalStats(boolean journalStats) {
+        this.journalStats = journalStats;
+    }
+
+    /**
+     * @return le score du tour choisi par le dernier coupIA, du point de vue
+     * du joueur qui l'a cherché (0 pour un tour du livre)
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Change le livre d'ouvertures consulté avant chaque recherche
+     *
+     * @param livre null pour chercher tous les tours
+     */
+    public void setLivre(LivreOuvertures livre) {
+        this.livre = livre;
+    }
+
+    /**
+     * Change la table de finales consultée pendant la recherche
+     *
+     * @param finales null pour chercher les finales comme le reste
+     */
+    public void setFinales(TableFinales finales) {
+        this.finales = finales;
+    }
+
+    /**
+     * Change les poids de l'heuristique de la difficulté de l'IA (ceux de
+     * HARD en difficulté 5, ceux de MEDIUM sinon)
+     */
+    public void setPoids(PoidsHeuristique poids) {
+        if (this.mode.equals("HARD")) {
+            this.poidsHard = poids;
+        } else {
+            this.poidsMedium = poids;
         }
+    }
 
+    public PoidsHeuristique getPoids() {
+        return this.mode.equals("HARD") ? poidsHard : poidsMedium;
+    }
+
+    /**
+     * Arrête au plus tôt, depuis un autre thread, la recherche en cours
+     */
+    @Override
+    public void interrompre() {
+        arret = true;
+    }
+
+    /**
+     * Oublie tout ce que les recherches précédentes ont appris (table de
+     * transposition, ordre des tours), pour qu'une partie ne dépende pas des
+     * précédentes
+     */
+    @Override
+    public void nouvellePartie() {
+        table.vider();
+        oublierOrdre(principale);
+        for (int[][] plateau : principale.historique) {
+            for (int[] cases : plateau) {
+                Arrays.fill(cases, 0);
+            }
+        }
+        iaId = 0;
     }
 
+    /**
+     * Évalue une position avec l'heuristique de la difficulté de l'IA, sans
+     * recherche
+     *
+     * @return le score du point de vue du joueur courant
+     */
+    public int evaluer(JeuCompact etat) {
+        return heuristique(etat, true, false);
+    }
+
+    /**
+     * Active ou coupe les messages de la recherche sur la sortie standard
+     */
+    @Override
+    public void setVerbeux(boolean verbeux) {
+        this.verbeux = verbeux;
+    }
+
+    @Override
     public IAFields<Piece, String, String, Plateau.TypePlateau> coupIA(Jeu gameState) {
         if (this.jeu == null && gameState != null) {
             this.jeu = gameState;
         }
-        ArrayList<Couple<IAFields<Piece, String, String, Plateau.TypePlateau>, Integer>> lst_coup = new ArrayList<>();
-        IAFields<Piece, String, String, Plateau.TypePlateau> best_coup = null;
-        int alpha = Integer.MIN_VALUE;
-        int beta = Integer.MAX_VALUE;
+        return MoteurIA.super.coupIA(gameState);
+    }
 
+    /**
+     * Cherche le tour du joueur courant directement sur un état compact, sans
+     * passer par Jeu (parties entre IA, outils de mesure)
+     *
+     * @param position l'état, qui n'est pas modifié
+     * @return le code du tour choisi (voir {@link Tour}), -1 si le joueur
+     * courant n'a pas de tour
+     */
+    @Override
+    public int chercherTour(JeuCompact position) {
+        ArrayList<Couple<Integer, Integer>> lst_coup = null;
+        Integer best_coup = null;
         int best = Integer.MIN_VALUE;
-        Joueur joueur = gameState.getJoueurCourant();
-        this.iaId = joueur.getId();
-        ArrayList<IAFields<Piece, String, String, Plateau.TypePlateau>> tours = getTourPossible(joueur, gameState);
-
-        for (IAFields<Piece, String, String, Plateau.TypePlateau> tour : tours) {
-            Jeu jeuClone = new Jeu(gameState);
-            if (tour.getPremier() != null) {
-                int x = (int) tour.getPremier().getPosition().getX();
-                int y = (int) tour.getPremier().getPosition().getY();
-                Piece pieceCourante = jeuClone.getPlateauCourant().getPiece(x, y);
-                if (pieceCourante == null) {
-                    continue;
-                }
 
-                Coup coup1 = Coup.stringToCoup(pieceCourante, jeuClone.getPlateauCourant(), tour.getSecond());
-                if (coup1 == null) {
-                    continue;
+        int joueur = position.getJoueurCourant();
+        if (this.iaId != 0 && joueur != this.iaId) {
+            // Les scores de la table sont du point de vue de l'IA ; une IA
+            // neuve (ou après nouvellePartie) n'a rien écrit dans la table
+            table.vider();
+        }
+        this.iaId = joueur;
+        table.nouvelleRecherche();
+
+        long debut = System.nanoTime();
+        this.limite = debut + tempsMs * 1000000L;
+        this.peutArreter = false;
+        this.arret = false;
+
+        // Toute la recherche se fait sur un seul état compact par thread, modifié par makeMove/unmakeMove
+        JeuCompact etat = new JeuCompact(position);
+        principale.etat = etat;
+        principale.stats.vider();
+        StatsRecherche mesures = new StatsRecherche(mode, threads);
+        oublierOrdre(principale);
+        ArrayList<Recherche> auxiliaires = new ArrayList<>();
+        ListeTours racine = principale.listes[0];
+        principale.generateur.generer(etat, racine);
+        ArrayList<Integer> tours = new ArrayList<>();
+        for (int i = 0; i < racine.taille(); i++) {
+            tours.add(racine.get(i));
+        }
+
+        // Un tour du livre est joué sans recherche, s'il est bien possible ici
+        if (livre != null) {
+            int tourLivre = tourEquivalent(etat, racine, livre.choisir(etat, r));
+            if (tourLivre >= 0) {
+                if (verbeux) {
+                    System.out.println("Tour du livre : " + Tour.toString(tourLivre));
                 }
-                jeuClone.appliquerCoup(coup1);
+                this.noeuds = 0;
+                this.score = 0;
+                terminerStats(mesures, "livre", tourLivre, debut);
+                return tourLivre;
+            }
+        }
 
-                Coup coup2 = Coup.stringToCoup(pieceCourante, jeuClone.getPlateauCourant(), tour.getTroisieme());
-                if (coup2 == null) {
-                    continue;
-                } else {
-                    jeuClone.appliquerCoup(coup2);
+        // Dans une finale de la table dont l'issue est connue, le tour qui la
+        // réalise est joué sans recherche
+        if (finales != null) {
+            int tourFinale = tourDeFinale(etat, racine);
+            if (tourFinale >= 0) {
+                if (verbeux) {
+                    System.out.println("Tour de la table de finales : " + Tour.toString(tourFinale) + ", score " + score);
                 }
+                this.noeuds = 0;
+                terminerStats(mesures, "finales", tourFinale, debut);
+                return tourFinale;
+            }
+        }
 
+        this.finAides = false;
+        this.profondeurPrincipale = 1;
+        ArrayList<Future<?>> aides = new ArrayList<>();
+        if (threads > 1 && modeParallele == ModeParallele.LAZY_SMP && tours.size() > 1) {
+            for (int k = 1; k < threads; k++) {
+                Recherche aide = new Recherche(new JeuCompact(etat));
+                aide.aide = true;
+                auxiliaires.add(aide);
+                ArrayList<Integer> toursAide = new ArrayList<>(tours);
+                int decalage = k;
+                aides.add(pool.submit(() -> aider(aide, toursAide, decalage)));
             }
+        }
 
-            jeuClone.choisirPlateau(tour.getQuatrieme());
-            jeuClone.joueurSuivant();
-            jeuClone.majPlateauCourant();
+        // Approfondissement itératif : on garde le résultat de la dernière
+        // itération terminée, et chaque itération commence par la variante
+        // principale de la précédente (tours racine triés, meilleur tour de la table)
+        for (int profondeur = 1; profondeur <= profondeurLimite && !tours.isEmpty(); profondeur++) {
+            ArrayList<Couple<Integer, Integer>> resultats;
+            this.profondeurPrincipale = profondeur;
+            if (threads > 1 && modeParallele == ModeParallele.RACINE && tours.size() > 1) {
+                resultats = rechercheRacineParallele(tours, profondeur, auxiliaires);
+            } else {
+                resultats = rechercheRacine(principale, tours, profondeur, lst_coup == null ? null : best);
+            }
+            if (arret) {
+                break;
+            }
+            lst_coup = resultats;
+            this.peutArreter = true;
 
-            int score = alphabeta(1, alpha, beta, false, jeuClone);
-            ////System.out.println("Pour le coup :"+coup+", on a le score (pas encore a jour) :"+score);
-            lst_coup.add(new Couple<>(tour, score));
+            lst_coup.sort((c1, c2) -> Integer.compare(c2.getSecond(), c1.getSecond()));
+            tours = new ArrayList<>();
+            for (Couple<Integer, Integer> c : lst_coup) {
+                tours.add(c.getPremier());
+            }
+            best_coup = lst_coup.get(0).getPremier();
+            best = lst_coup.get(0).getSecond();
 
-            if (score > best) {
-                best = score;
-                best_coup = tour;
-                //System.out.println("BESTCOUP "+best_coup);
+            long ecoule = (System.nanoTime() - debut) / 1000000L;
+            long noeuds = principale.stats.noeuds;
+            for (Recherche rech : auxiliaires) {
+                noeuds += rech.stats.noeuds;
+            }
+            mesures.iteration(profondeur, best, ecoule, noeuds);
+            if (verbeux) {
+                System.out.println("Profondeur " + profondeur + " : score " + best + ", tour " + Tour.toString(best_coup)
+                        + ", " + noeuds + " noeuds, " + ecoule + " ms, " + threads + " thread(s)");
             }
-            alpha = Math.max(alpha, score);
 
+            // L'itération suivante prend plusieurs fois plus de temps : on ne la
+            // commence pas si elle a peu de chances de finir
+            if (ecoule * 3 > tempsMs || Math.abs(best) > MAT / 2) {
+                break;
+            }
         }
+
+        this.finAides = true;
+        for (Future<?> aide : aides) {
+            try {
+                aide.get();
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println("Erreur dans un thread auxiliaire : " + e.getMessage());
+            }
+        }
+        mesures.ajouter(principale.stats);
+        for (Recherche rech : auxiliaires) {
+            mesures.ajouter(rech.stats);
+        }
+        this.noeuds = mesures.getNoeuds();
+        this.score = lst_coup == null ? 0 : best;
+
         // System.out.println("--------Fin MiniMax--------");
         // System.out.println("Meilleur score pour cette profondeur: " + best);
         // System.out.println("--------------------------------------");
 
         // System.out.println("Le meilleur coup est:" + best_coup);
-        if (lst_coup.size() > 1) {
+        if (lst_coup != null && lst_coup.size() > 1) {
             int seuil = 0;
             if (this.mode.equals("HARD")) {
                 seuil = best; // (int) (best * 0.95);
@@ -137,47 +589,27 @@ public class IAminimax {
                 // Pour chaque tour possible, on prend le meilleur heuristique
                 best_coup = null;
                 int bestHeuristique = Integer.MIN_VALUE;
-                ArrayList<IAFields<Piece, String, String, Plateau.TypePlateau>> coupsBestHeuristique = new ArrayList<>();
-                System.out.println("--------------------------------------");
-                System.out.println("Nombre de coups restants: " + lst_coup.size());
+                ArrayList<Integer> coupsBestHeuristique = new ArrayList<>();
+                if (verbeux) {
+                    System.out.println("--------------------------------------");
+                    System.out.println("Nombre de coups restants: " + lst_coup.size());
+                }
                 for (int i = 0; i < lst_coup.size(); i++) {
-                    Jeu simCoup = new Jeu(gameState);
-                    IAFields<Piece, String, String, Plateau.TypePlateau> tour = lst_coup.get(i).getPremier();
-                    if (tour.getPremier() != null) {
-                        int x = (int) tour.getPremier().getPosition().getX();
-                        int y = (int) tour.getPremier().getPosition().getY();
-                        Piece pieceCourant = simCoup.getPlateauCourant().getPiece(x, y);
-                        if (pieceCourant == null) {
-                            continue;
-                        }
-
-                        Coup coup1 = Coup.stringToCoup(pieceCourant, simCoup.getPlateauCourant(), tour.getSecond());
-                        if (coup1 == null) {
-                            continue;
-                        }
-                        simCoup.appliquerCoup(coup1);
-
-                        Coup coup2 = Coup.stringToCoup(pieceCourant, simCoup.getPlateauCourant(), tour.getTroisieme());
-                        if (coup2 != null) {
-                            System.out.println("Tour: " + tour.getPremier().getPosition() + ", " + tour.getSecond() + ", " + tour.getTroisieme() + ", " + tour.getQuatrieme());
-                            simCoup.appliquerCoup(coup2);
-                        } else {
-                            System.out.println("Tour: " + tour.getPremier().getPosition() + ", " + tour.getSecond() + ", null," + tour.getQuatrieme());
-                        }
-
-                        simCoup.choisirPlateau(tour.getQuatrieme());
-                    } else {
-                        System.out.println("Tour: null, null, null, " + tour.getQuatrieme());
-                        simCoup.choisirPlateau(tour.getQuatrieme());
+                    Integer tour = lst_coup.get(i).getPremier();
+                    if (verbeux) {
+                        System.out.println("Tour: " + Tour.toString(tour));
                     }
-                    simCoup.joueurSuivant();
-                    simCoup.majPlateauCourant();
+                    etat.makeMove(tour);
 
+                    String modeCourant = this.mode;
                     this.mode = "MEDIUM"; // On choisit le mode MEDIUM pour l'heuristique pour un des coups proches
-                    int heuristique = heuristique(simCoup, false, true);
-                    this.mode = "HARD"; // On remet le mode HARD pour le reste de l'IA
+                    int heuristique = heuristique(etat, false, verbeux);
+                    this.mode = modeCourant; // On remet le mode pour le reste de l'IA
+                    etat.unmakeMove();
 
-                    System.out.println(" => Heuristique: " + heuristique);
+                    if (verbeux) {
+                        System.out.println(" => Heuristique: " + heuristique);
+                    }
 
                     if (heuristique > bestHeuristique) {
                         bestHeuristique = heuristique;
@@ -189,524 +621,980 @@ public class IAminimax {
                     }
 
                 }
-                System.out.println("Coups avec la meilleure heuristique (" + bestHeuristique + ") :");
-                for (IAFields<Piece, String, String, Plateau.TypePlateau> coup : coupsBestHeuristique) {
-                    Piece p = coup.getPremier();
-                    System.out.println(" - " + (p == null ? "null" : p.getPosition()) + ", " + coup.getSecond() + ", " + coup.getTroisieme() + ", " + coup.getQuatrieme());
+                if (threads > 1) {
+                    // L'ordre des tours à la racine dépend des threads : le
+                    // tirage se fait dans un ordre fixe
+                    Collections.sort(coupsBestHeuristique);
+                }
+                if (verbeux) {
+                    System.out.println("Coups avec la meilleure heuristique (" + bestHeuristique + ") :");
+                    for (Integer coup : coupsBestHeuristique) {
+                        System.out.println(" - " + Tour.toString(coup));
+                    }
                 }
-                // Couple<IAFields<Piece, String, String, Plateau.TypePlateau>, Integer> unMeilleurCoup = lst_coup.get(r.nextInt(lst_coup.size()));
                 best_coup = coupsBestHeuristique.get(r.nextInt(coupsBestHeuristique.size()));
-                Piece p = best_coup.getPremier();
-                System.out.println("Meilleur coup: " + (p == null ? "null" : p.getPosition()) + ", " + best_coup.getSecond() + ", " + best_coup.getTroisieme() + ", " + best_coup.getQuatrieme());
+                if (verbeux) {
+                    System.out.println("Meilleur coup: " + Tour.toString(best_coup));
+                }
+            }
+        }
+
+        int choisi = best_coup == null ? -1 : best_coup;
+        terminerStats(mesures, "recherche", choisi, debut);
+        return choisi;
+    }
+
+    private void terminerStats(StatsRecherche mesures, String origine, int tour, long debut) {
+        mesures.terminer(origine, tour, this.score, (System.nanoTime() - debut) / 1000000L);
+        this.stats = mesures;
+        if (verbeux) {
+            System.out.println("Mesures : " + mesures);
+        }
+        if (journalStats) {
+            System.out.println(mesures.toJson());
+        }
+    }
+
+    // Cherche chaque tour de la racine à la profondeur de l'itération courante.
+    // Avec PVS, la recherche commence dans une fenêtre d'aspiration autour du
+    // score de l'itération précédente, élargie tant que le meilleur score sort
+    // de la fenêtre
+    private ArrayList<Couple<Integer, Integer>> rechercheRacine(Recherche rech, ArrayList<Integer> tours, int profondeur, Integer scorePrecedent) {
+        if (!pvs || scorePrecedent == null || Math.abs(scorePrecedent) > MAT / 2) {
+            return rechercheRacine(rech, tours, profondeur, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+        int delta = FENETRE_ASPIRATION;
+        int alpha = scorePrecedent - delta;
+        int beta = scorePrecedent + delta;
+        while (true) {
+            ArrayList<Couple<Integer, Integer>> resultats = rechercheRacine(rech, tours, profondeur, alpha, beta);
+            if (arreter(rech)) {
+                return resultats;
+            }
+            int best = Integer.MIN_VALUE;
+            for (Couple<Integer, Integer> c : resultats) {
+                best = Math.max(best, c.getSecond());
+            }
+            delta *= 4;
+            if (best <= alpha && alpha != Integer.MIN_VALUE) {
+                alpha = delta > MAT / 2 ? Integer.MIN_VALUE : scorePrecedent - delta;
+            } else if (best >= beta && beta != Integer.MAX_VALUE) {
+                beta = delta > MAT / 2 ? Integer.MAX_VALUE : scorePrecedent + delta;
+            } else {
+                return resultats;
+            }
+        }
+    }
+
+    private ArrayList<Couple<Integer, Integer>> rechercheRacine(Recherche rech, ArrayList<Integer> tours, int profondeur, int alpha, int beta) {
+        ArrayList<Couple<Integer, Integer>> resultats = new ArrayList<>();
+        rech.profondeurRecherche = profondeur;
+        rech.reduction = 0;
+        rech.alphaRacine = null;
+        for (int i = 0; i < tours.size(); i++) {
+            Integer tour = tours.get(i);
+            rech.etat.makeMove(tour);
+            int score;
+            if (i == 0 || !pvs) {
+                score = alphabeta(rech, 1, alpha, beta, false, rech.etat);
+            } else {
+                score = alphabeta(rech, 1, alpha, alpha + 1, false, rech.etat);
+                if (score > alpha && score < beta) {
+                    score = alphabeta(rech, 1, alpha, beta, false, rech.etat);
+                }
+            }
+            rech.etat.unmakeMove();
+            if (arreter(rech)) {
+                return resultats;
+            }
+            ////System.out.println("Pour le coup :"+coup+", on a le score (pas encore a jour) :"+score);
+            resultats.add(new Couple<>(tour, score));
+            alpha = Math.max(alpha, score);
+            if (score >= beta) {
+                // Au-dessus de la fenêtre d'aspiration : elle sera élargie
+                break;
             }
         }
+        return resultats;
+    }
 
-        if (best_coup == null) {
-            return null;
+    // Boucle d'un thread auxiliaire du mode LAZY_SMP : approfondissement
+    // itératif sur la même racine, en commençant par un autre tour que le
+    // thread principal, et un cran plus loin que lui un thread sur deux. Ses
+    // résultats ne servent qu'à travers la table de transposition
+    private void aider(Recherche aide, ArrayList<Integer> tours, int decalage) {
+        Collections.rotate(tours, decalage);
+        int profondeur = 0;
+        Integer scorePrecedent = null;
+        while (!arreter(aide)) {
+            profondeur = Math.max(profondeur + 1, profondeurPrincipale + decalage % 2);
+            if (profondeur > profondeurLimite) {
+                return;
+            }
+            ArrayList<Couple<Integer, Integer>> resultats = rechercheRacine(aide, tours, profondeur, scorePrecedent);
+            if (arreter(aide)) {
+                return;
+            }
+            resultats.sort((c1, c2) -> Integer.compare(c2.getSecond(), c1.getSecond()));
+            tours = new ArrayList<>();
+            for (Couple<Integer, Integer> c : resultats) {
+                tours.add(c.getPremier());
+            }
+            scorePrecedent = resultats.get(0).getSecond();
         }
-        // System.out.println("CONFIGURATIONS H:");
-        // for (int i = 0; i < 9; i++) {
-        //     System.out.println(i + " : " + poids.get(i));
-        // }
+    }
 
-        return best_coup;
+    private boolean arreter(Recherche rech) {
+        return arret || (rech.aide && finAides);
     }
 
-    private int alphabeta(int profondeur, int alpha, int beta, boolean tourIA, Jeu clone) {
-        /*
-        String hash = getHash(clone);
+    // Même recherche sur plusieurs threads : le premier tour est cherché seul,
+    // les suivants en parallèle avec un alpha partagé. Un tour qui échoue sous
+    // alpha peut renvoyer exactement alpha sans le valoir, et ce qui arrive
+    // dépend de l'ordre des threads : les tours à égalité avec le meilleur sont
+    // donc revérifiés avec une fenêtre nulle pour que le choix reste le même
+    private ArrayList<Couple<Integer, Integer>> rechercheRacineParallele(ArrayList<Integer> tours, int profondeur, ArrayList<Recherche> auxiliaires) {
+        ArrayList<Couple<Integer, Integer>> resultats = new ArrayList<>();
+        Recherche rech = principale;
+        rech.profondeurRecherche = profondeur;
+        rech.reduction = 0;
+        rech.alphaRacine = null;
+
+        Integer premier = tours.get(0);
+        rech.etat.makeMove(premier);
+        int scorePremier = alphabeta(rech, 1, Integer.MIN_VALUE, Integer.MAX_VALUE, false, rech.etat);
+        rech.etat.unmakeMove();
+        if (arret) {
+            return resultats;
+        }
+        resultats.add(new Couple<>(premier, scorePremier));
+
+        AtomicInteger alphaPartage = new AtomicInteger(scorePremier);
+        ConcurrentLinkedQueue<Recherche> libres = new ConcurrentLinkedQueue<>(auxiliaires);
+        ArrayList<Callable<Integer>> taches = new ArrayList<>();
+        for (int i = 1; i < tours.size(); i++) {
+            Integer tour = tours.get(i);
+            taches.add(() -> {
+                Recherche aux = libres.poll();
+                if (aux == null) {
+                    aux = new Recherche(new JeuCompact(principale.etat));
+                    synchronized (auxiliaires) {
+                        auxiliaires.add(aux);
+                    }
+                }
+                aux.profondeurRecherche = profondeur;
+                aux.reduction = 0;
+                aux.alphaRacine = alphaPartage;
+                aux.etat.makeMove(tour);
+                int score = alphabeta(aux, 1, alphaPartage.get(), Integer.MAX_VALUE, false, aux.etat);
+                aux.etat.unmakeMove();
+                if (!arret) {
+                    alphaPartage.accumulateAndGet(score, Math::max);
+                }
+                libres.add(aux);
+                return score;
+            });
+        }
+
+        try {
+            List<Future<Integer>> scores = pool.invokeAll(taches);
+            for (int i = 0; i < scores.size(); i++) {
+                resultats.add(new Couple<>(tours.get(i + 1), scores.get(i).get()));
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            System.err.println("Erreur dans la recherche parallèle : " + e.getMessage());
+            arret = true;
+        }
+        if (arret) {
+            return resultats;
+        }
 
-        Memoisation memoisation1 = memoisation.get(hash);
+        int best = Integer.MIN_VALUE;
+        for (Couple<Integer, Integer> c : resultats) {
+            best = Math.max(best, c.getSecond());
+        }
+        for (int i = 0; i < resultats.size(); i++) {
+            Couple<Integer, Integer> c = resultats.get(i);
+            if (c.getSecond() != best) {
+                continue;
+            }
+            rech.etat.makeMove(c.getPremier());
+            int score = alphabeta(rech, 1, best - 1, best + 1, false, rech.etat);
+            rech.etat.unmakeMove();
+            if (arret) {
+                return resultats;
+            }
+            if (score < best) {
+                resultats.set(i, new Couple<>(c.getPremier(), score));
+            }
+        }
+        return resultats;
+    }
 
-        if (memoisation1 != null && memoisation1.profondeur >= profondeur) {
-            return memoisation1.evaluation;
-        }*/
-        Joueur joueur = jeu.getJoueurCourant();
-        // System.out.println("DEBUG: Joueur courant: " + joueur.getId() + ", Tour IA: " + tourIA + ", Profondeur: " + profondeur);
-        Joueur opponent = null;
-        if (joueur.getId() == 1) {
-            opponent = jeu.getJoueur2();
-        } else {
-            opponent = jeu.getJoueur1();
+    /**
+     * Cherche dans la table de finales le tour à jouer : le plus court gain si
+     * la position est gagnée, la plus longue défense si elle est perdue.
+     * Change le score du dernier coupIA
+     *
+     * @return le code du tour, -1 si la position n'est pas dans la table ou
+     * si son issue n'est pas connue
+     */
+    private int tourDeFinale(JeuCompact etat, ListeTours racine) {
+        int valeur = finales.sonder(etat);
+        if (valeur <= 0) {
+            return -1;
         }
+        int joueur = etat.getJoueurCourant();
+        int meilleurTour = -1;
+        int meilleur = Integer.MIN_VALUE;
+        for (int i = 0; i < racine.taille(); i++) {
+            etat.makeMove(racine.get(i));
+            int s;
+            if (etat.gameOver(joueur) != 0) {
+                s = MAT - 1;
+            } else if (etat.gameOver(3 - joueur) != 0) {
+                s = -MAT + 1;
+            } else {
+                int suivante = finales.sonder(etat); // pour l'adversaire
+                int fin = 1 + TableFinales.tours(suivante);
+                s = suivante <= 0 ? 0 : TableFinales.estGain(suivante) ? -MAT + fin : MAT - fin;
+            }
+            etat.unmakeMove();
+            if (s > meilleur) {
+                meilleur = s;
+                meilleurTour = racine.get(i);
+            }
+        }
+        this.score = meilleur;
+        return meilleurTour;
+    }
+
+    private int alphabeta(Recherche rech, int profondeur, int alpha, int beta, boolean tourIA, JeuCompact etat) {
+        int joueur = this.iaId;
+        // System.out.println("DEBUG: Joueur courant: " + joueur + ", Tour IA: " + tourIA + ", Profondeur: " + profondeur);
+        int opponent = 3 - this.iaId;
         if (tourIA) {
             joueur = opponent;
         }
 
-        if (clone.gameOver(clone.getJoueurCourant()) != 0 || profondeur >= this.difficulte) {
-            // System.out.println("Joueur " + joueur.getId()); 
-            // System.out.println("clone.getGameState() = " + clone.getGameState());
-            if (clone.getGameState() == joueur.getId()) {
-                // clone.printGamePlay();
-                // System.out.println("IA gagne => heuristique: " + (1000000 - profondeur));
+        if (arreter(rech)) {
+            return 0;
+        }
+        if ((++rech.stats.noeuds & 1023) == 0 && peutArreter && System.nanoTime() >= limite) {
+            arret = true;
+            return 0;
+        }
+        if (profondeur > rech.stats.profondeurSelective) {
+            rech.stats.profondeurSelective = profondeur;
+        }
+
+        boolean coupNulPermis = !rech.sansCoupNul;
+        rech.sansCoupNul = false;
+
+        int gameState = etat.gameOver(etat.getJoueurCourant());
+        if (gameState == 0 && finales != null) {
+            // Finale de la table : le score exact remplace la recherche, aux
+            // feuilles comme plus haut
+            int valeur = finales.sonder(etat);
+            if (valeur > 0) {
+                int fin = profondeur + TableFinales.tours(valeur);
+                return TableFinales.estGain(valeur) == tourIA ? MAT - fin : -MAT + fin;
+            }
+        }
+        if (gameState != 0 || profondeur + rech.reduction >= rech.profondeurRecherche) {
+            if (gameState == joueur) {
                 // IA a gagné
-                return 1000000 - profondeur;
-            } else if (clone.getGameState() == opponent.getId()) {
+                return MAT - profondeur;
+            } else if (gameState == opponent) {
                 // IA a perdu
-                // clone.printGamePlay();
-                // System.out.println("IA perd => heuristique: " + (-1000000 + profondeur));
-                return -1000000 + profondeur;
+                return -MAT + profondeur;
             }
 
-            int score = heuristique(clone, tourIA, false);
+            if (gameState == 0 && quiescence > 0) {
+                return quiescence(rech, profondeur, alpha, beta, tourIA, etat, 0);
+            }
+            rech.stats.feuilles++;
+            int score = heuristique(etat, tourIA, false);
             // System.out.println("Heuristique: " + score);
             return score;
         }
 
-        // System.out.println("\n--------alphaBeta--------");
-        // System.out.println("Profondeur: " + profondeur + ", Tour " +  (tourIA ? "IA" : "Adversaire"));
-        // clone.printGamePlay();
-        ArrayList<IAFields<Piece, String, String, Plateau.TypePlateau>> tours = null;
-        tours = getTourPossible(clone.getJoueurCourant(), clone);
-
-        //trierToursParHeuristique(tours, tourIA, clone);
-        int best = tourIA ? Integer.MIN_VALUE : Integer.MAX_VALUE;
-        for (IAFields<Piece, String, String, Plateau.TypePlateau> tour : tours) {
-            Jeu jeuClone = new Jeu(clone);
-            if (tour.getPremier() != null) {
-                // System.out.println("Tour " + profondeur + ":" + tour.getPremier().getPosition() + ", " + tour.getSecond() + ", " + tour.getTroisieme() + ", " + tour.getQuatrieme() + "||");
-                int x = (int) tour.getPremier().getPosition().getX();
-                int y = (int) tour.getPremier().getPosition().getY();
-                Piece pieceCourant = jeuClone.getPlateauCourant().getPiece(x, y);
-                if (pieceCourant == null) {
-                    continue;
-                }
-
-                Coup coup1 = Coup.stringToCoup(pieceCourant, jeuClone.getPlateauCourant(), tour.getSecond());
-                if (coup1 == null) {
-                    continue;
-                }
-                jeuClone.appliquerCoup(coup1);
+        if (rech.alphaRacine != null) {
+            // Un tour de la racine qui ne bat pas le meilleur tour déjà trouvé
+            // par un autre thread ne sert à rien, quel que soit le noeud. On
+            // garde alpha < beta pour que les bornes renvoyées restent justes
+            alpha = Math.max(alpha, Math.min(rech.alphaRacine.get(), beta - 1));
+        }
 
-                Coup coup2 = Coup.stringToCoup(pieceCourant, jeuClone.getPlateauCourant(), tour.getTroisieme());
-                if (coup2 != null) {
-                    jeuClone.appliquerCoup(coup2);
-                }
+        // Le hash contient le joueur courant, donc tourIA : une entrée ne sert
+        // que si elle a été cherchée au moins aussi profond qu'ici. En
+        // parallèle RACINE, une entrée plus profonde écrite par un autre thread
+        // changerait le score selon l'ordre des threads : on demande la même
+        // profondeur
+        int restante = rech.profondeurRecherche - profondeur - rech.reduction;
+        // Une position et sa transposée partagent leur entrée, dont le tour
+        // est rangé dans le sens de la forme canonique
+        boolean transposee = etat.estTransposee();
+        long entree = table.sonder(etat.getHashCanonique());
+        rech.stats.sondesTable++;
+        if (entree != 0) {
+            rech.stats.succesTable++;
+        }
+        int profondeurEntree = TableTransposition.profondeur(entree);
+        if (entree != 0 && (threads > 1 && modeParallele == ModeParallele.RACINE ? profondeurEntree == restante : profondeurEntree >= restante)) {
+            int score = scoreDepuisTable(TableTransposition.score(entree), profondeur);
+            switch (TableTransposition.borne(entree)) {
+                case TableTransposition.EXACTE:
+                    rech.stats.coupuresTable++;
+                    return score;
+                case TableTransposition.BORNE_INF:
+                    alpha = Math.max(alpha, score);
+                    break;
+                case TableTransposition.BORNE_SUP:
+                    beta = Math.min(beta, score);
+                    break;
+            }
+            if (beta <= alpha) {
+                rech.stats.coupuresTable++;
+                return score;
+            }
+        }
+        int alphaInitial = alpha;
+        int betaInitial = beta;
+
+        // Le coup nul et les LMR donnent un score qui dépend de la fenêtre : en
+        // parallèle RACINE, où alpha vient des autres threads, le tour choisi
+        // dépendrait de l'ordre des threads
+        boolean reductions = rech.alphaRacine == null && restante >= RESTANTE_MIN_REDUCTION;
+        if (reductionCoupNul > 0 && coupNulPermis && reductions) {
+            int score = coupNul(rech, profondeur, alpha, beta, tourIA, etat);
+            if (score != Integer.MIN_VALUE) {
+                return score;
+            }
+        }
 
-                jeuClone.choisirPlateau(tour.getQuatrieme());
-                jeuClone.joueurSuivant();
-                jeuClone.majPlateauCourant();
+        ListeTours tours = rech.listes[profondeur];
+        rech.generateur.generer(etat, tours);
+        rech.stats.noeudsInternes++;
+        rech.stats.toursGeneres += tours.taille();
+        int tourTable = entree == 0 ? TableTransposition.AUCUN_TOUR : TableTransposition.tour(entree);
+        if (transposee && tourTable != TableTransposition.AUCUN_TOUR) {
+            tourTable = Tour.transposer(tourTable);
+        }
+        noterTours(rech, etat, tours, tourTable, transposee, profondeur);
 
-                Jeu jeuClone2 = new Jeu(jeuClone);
-                if (tourIA) {
-                    best = Math.max(best, alphabeta(profondeur + 1, alpha, beta, false, jeuClone2));
-                    alpha = Math.max(alpha, best);
+        int best = tourIA ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        int bestTour = TableTransposition.AUCUN_TOUR;
+        for (int i = 0; i < tours.taille(); i++) {
+            // Les tours sont triés au fur et à mesure : après une coupure, le
+            // reste de la liste n'a pas besoin de l'être
+            tours.choisirSuivant(i);
+            int tour = tours.get(i);
+            etat.makeMove(tour);
+            // PVS : le premier tour, le plus probablement le meilleur, est
+            // cherché avec toute la fenêtre, les suivants avec une fenêtre
+            // nulle qui dit seulement s'ils font mieux ; seuls ceux-là sont
+            // recherchés avec toute la fenêtre
+            // LMR : un tour calme loin dans la liste est d'abord cherché moins
+            // profond, avec la fenêtre nulle ; seul un tour qui fait mieux que
+            // prévu est recherché à la profondeur normale
+            boolean reduire = premierTourReduit > 0 && reductions && pvs && i >= premierTourReduit
+                    && tours.getNote(i) < NOTE_MEURTRIER;
+            if (tourIA) {
+                int score;
+                if (i == 0 || !pvs) {
+                    score = alphabeta(rech, profondeur + 1, alpha, beta, false, etat);
                 } else {
-                    best = Math.min(best, alphabeta(profondeur + 1, alpha, beta, true, jeuClone2));
-                    beta = Math.min(beta, best);
+                    score = Integer.MAX_VALUE;
+                    if (reduire) {
+                        rech.stats.reductionsLMR++;
+                        rech.reduction++;
+                        score = alphabeta(rech, profondeur + 1, alpha, alpha + 1, false, etat);
+                        rech.reduction--;
+                        if (score > alpha) {
+                            rech.stats.recherchesLMR++;
+                        }
+                    }
+                    if (score > alpha) {
+                        score = alphabeta(rech, profondeur + 1, alpha, alpha + 1, false, etat);
+                    }
+                    if (score > alpha && score < beta) {
+                        score = alphabeta(rech, profondeur + 1, alpha, beta, false, etat);
+                    }
+                }
+                if (score > best) {
+                    best = score;
+                    bestTour = tour;
                 }
+                alpha = Math.max(alpha, best);
             } else {
-                // System.out.println("Tour " + profondeur + ": null, null, null, " + tour.getQuatrieme() + "||");
-                jeuClone.choisirPlateau(tour.getQuatrieme());
-                jeuClone.joueurSuivant();
-                jeuClone.majPlateauCourant();
-                Jeu jeuClone2 = new Jeu(jeuClone);
-                if (tourIA) {
-                    best = Math.max(best, alphabeta(profondeur + 1, alpha, beta, false, jeuClone2));
-                    alpha = Math.max(alpha, best);
+                int score;
+                if (i == 0 || !pvs) {
+                    score = alphabeta(rech, profondeur + 1, alpha, beta, true, etat);
                 } else {
-                    best = Math.min(best, alphabeta(profondeur + 1, alpha, beta, true, jeuClone2));
-                    beta = Math.min(beta, best);
+                    score = Integer.MIN_VALUE;
+                    if (reduire) {
+                        rech.stats.reductionsLMR++;
+                        rech.reduction++;
+                        score = alphabeta(rech, profondeur + 1, beta - 1, beta, true, etat);
+                        rech.reduction--;
+                        if (score < beta) {
+                            rech.stats.recherchesLMR++;
+                        }
+                    }
+                    if (score < beta) {
+                        score = alphabeta(rech, profondeur + 1, beta - 1, beta, true, etat);
+                    }
+                    if (score < beta && score > alpha) {
+                        score = alphabeta(rech, profondeur + 1, alpha, beta, true, etat);
+                    }
                 }
+                if (score < best) {
+                    best = score;
+                    bestTour = tour;
+                }
+                beta = Math.min(beta, best);
+            }
+            etat.unmakeMove();
+            if (arreter(rech)) {
+                return 0;
             }
-            // jeuClone.printGamePlay();
 
             if (beta <= alpha) {
+                rech.stats.coupures[Math.min(i, StatsRecherche.RANGS - 1)]++;
+                retenirCoupure(rech, tour, tours.getNote(i), profondeur, restante);
                 break;
             }
         }
-        // System.out.println("Fin de la profondeur: " + profondeur + ", Meilleur score: " + best);
-        // System.out.println("--------------------------------------");
-        // memoisation.put(hash, new Memoisation(best, profondeur));
+
+        if (bestTour != TableTransposition.AUCUN_TOUR) {
+            // Les descendants ont pu relever alpha avec l'alpha partagé : un
+            // score sous cet alpha n'est alors qu'une borne supérieure
+            int alphaUtilise = rech.alphaRacine == null ? alphaInitial : Math.max(alphaInitial, rech.alphaRacine.get());
+            int borne;
+            if (best >= betaInitial) {
+                borne = TableTransposition.BORNE_INF;
+            } else if (best <= alphaUtilise) {
+                borne = TableTransposition.BORNE_SUP;
+            } else {
+                borne = TableTransposition.EXACTE;
+            }
+            table.enregistrer(etat.getHashCanonique(), restante, scoreVersTable(best, profondeur), borne,
+                    transposee ? Tour.transposer(bestTour) : bestTour);
+        }
         return best;
     }
 
-    // heuristique
-    private int heuristique(Jeu jeu, boolean tourIA, boolean debug) {
-        // jeu.printGamePlay();
-
-        Joueur joueur = jeu.getJoueurCourant();
-        Joueur opponent = null;
-        if (joueur.getId() == 1) {
-            opponent = jeu.getJoueur2();
-        } else {
-            opponent = jeu.getJoueur1();
+    // Coup nul : le joueur passe et l'adversaire est cherché moins profond,
+    // avec une fenêtre nulle au bord de la fenêtre du joueur. Si le joueur
+    // dépasse quand même la fenêtre, la position est vérifiée par la même
+    // recherche réduite, avec ses vrais tours mais sans coup nul. Ne sert que
+    // si l'heuristique dépasse déjà la fenêtre, et jamais près d'un mat
+    //
+    // Renvoie le score de la coupure, Integer.MIN_VALUE s'il n'y en a pas
+    private int coupNul(Recherche rech, int profondeur, int alpha, int beta, boolean tourIA, JeuCompact etat) {
+        if (tourIA ? beta >= MAT / 2 || heuristique(etat, true, false) < beta
+                : alpha <= -MAT / 2 || heuristique(etat, false, false) > alpha) {
+            return Integer.MIN_VALUE;
         }
-        if (!tourIA) {
-            joueur = opponent;
-            // opponent = jeu.getJoueurCourant();
+        rech.stats.coupsNuls++;
+        int r = reductionCoupNul;
+        etat.makeMove(-1, null, null, etat.getPlateauCourant()); // même plateau : seul le joueur change
+        rech.sansCoupNul = true;
+        rech.reduction += r;
+        int score = tourIA
+                ? alphabeta(rech, profondeur + 1, beta - 1, beta, false, etat)
+                : alphabeta(rech, profondeur + 1, alpha, alpha + 1, true, etat);
+        rech.reduction -= r;
+        etat.unmakeMove();
+        if (arreter(rech) || (tourIA ? score < beta : score > alpha)) {
+            return Integer.MIN_VALUE;
         }
-
-        if (this.mode.equals("HARD")) {
-            return 25 * hMateriel(jeu, joueur)
-                    + 1 * hControlePlateaux(jeu, joueur)
-                    - 1 * hPiecesAdjacentes(jeu, joueur)
-                    - 5 * hDiffPionEtClone(jeu, joueur)
-                    - 3 * hBordPlateau(jeu, joueur)
-                    - 3 * hCoinPlateau(jeu, joueur)
-                    + 2 * hCentrePlateau(jeu, joueur);
-        }
-        return 25 * hMateriel(jeu, joueur)
-                + 1 * hControlePlateaux(jeu, joueur)
-                - 3 * hPiecesAdjacentes(jeu, joueur)
-                - 5 * hDiffPionEtClone(jeu, joueur)
-                - 3 * hBordPlateau(jeu, joueur)
-                - 5 * hCoinPlateau(jeu, joueur)
-                - 2 * hChoixPlateau(jeu, joueur)
-                + 2 * hCentrePlateau(jeu, joueur)
-                + 2 * hClone(jeu, joueur)
-                + 2 * hSurPlt(jeu, joueur);
-
+        // Vérification : le même noeud, réduit, sans coup nul
+        rech.sansCoupNul = true;
+        rech.reduction += r;
+        score = tourIA
+                ? alphabeta(rech, profondeur, beta - 1, beta, true, etat)
+                : alphabeta(rech, profondeur, alpha, alpha + 1, false, etat);
+        rech.reduction -= r;
+        if (arreter(rech) || (tourIA ? score < beta : score > alpha)) {
+            return Integer.MIN_VALUE;
+        }
+        rech.stats.coupuresCoupNul++;
+        return score;
     }
 
-    // Pour chaque piece en plus de l'adversaire, on ajoute un point
-    private int hMateriel(Jeu jeu, Joueur ia) {
-        // System.out.println("DEBUG hMateriel " + ia.getNom());
-        int score = 0;
-        for (int i = 0; i < jeu.getPlateauCourant().getSize(); i++) {
-            for (int j = 0; j < jeu.getPlateauCourant().getSize(); j++) {
-                Piece piece = jeu.getPlateauCourant().getPiece(i, j);
-                if (piece != null && piece.getOwner().equals(ia)) {
-                    score += 1;
-                } else if (piece != null && !piece.getOwner().equals(ia)) {
-                    score -= 1;
-                }
+    // Recherche de quiescence, après la profondeur nominale : seuls les tours
+    // bruyants sont joués, ceux qui détruisent des pièces (poussée hors du
+    // plateau, paradoxe entre pièces d'une même couleur, clone ou saut sur une
+    // case occupée), les plus destructeurs d'abord. Le joueur peut toujours
+    // jouer un tour calme : l'heuristique de la position sert de score
+    // plancher (stand pat), et si même deux pièces détruites ne l'amènent pas
+    // à la fenêtre, aucun tour n'est essayé (delta pruning)
+    private int quiescence(Recherche rech, int profondeur, int alpha, int beta, boolean tourIA, JeuCompact etat, int demiCoups) {
+        if (profondeur > rech.stats.profondeurSelective) {
+            rech.stats.profondeurSelective = profondeur;
+        }
+        int gameState = etat.gameOver(etat.getJoueurCourant());
+        if (gameState != 0) {
+            // Mêmes scores de fin que alphabeta
+            if (gameState == (tourIA ? 3 - iaId : iaId)) {
+                return MAT - profondeur;
+            } else if (gameState == 3 - iaId) {
+                return -MAT + profondeur;
             }
         }
-        if (ia.getId() == 1) {
-            score += jeu.getJoueur1().getNbClones();
-            score -= jeu.getJoueur2().getNbClones();
+        rech.stats.feuilles++;
+        int standPat = heuristique(etat, tourIA, false);
+        if (gameState != 0 || demiCoups >= quiescence) {
+            return standPat;
+        }
+        if (tourIA) {
+            if (standPat >= beta || standPat + DELTA_QUIESCENCE <= alpha) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
         } else {
-            score += jeu.getJoueur2().getNbClones();
-            score -= jeu.getJoueur1().getNbClones();
+            if (standPat <= alpha || standPat - DELTA_QUIESCENCE >= beta) {
+                return standPat;
+            }
+            beta = Math.min(beta, standPat);
         }
-        // System.out.println("DEBUG hMateriel score: " + score);
-        return score;
-    }
 
-    private int hClone(Jeu jeu, Joueur ia) {
-        int score = 0;
-        if (ia.getId() == 1) {
-            score += jeu.getJoueur1().getNbClones();
-            score -= jeu.getJoueur2().getNbClones();
-        } else {
-            score += jeu.getJoueur2().getNbClones();
-            score -= jeu.getJoueur1().getNbClones();
+        ListeTours tours = rech.listes[profondeur];
+        rech.generateur.generer(etat, tours);
+        rech.stats.noeudsInternes++;
+        rech.stats.toursGeneres += tours.taille();
+        noterBruyants(rech, etat, tours);
+        int best = standPat;
+        for (int i = 0; i < tours.taille(); i++) {
+            tours.choisirSuivant(i);
+            if (tours.getNote(i) <= 0) {
+                break; // il ne reste que des tours calmes
+            }
+            rech.stats.noeudsQuiescence++;
+            if ((++rech.stats.noeuds & 1023) == 0 && peutArreter && System.nanoTime() >= limite) {
+                arret = true;
+            }
+            if (arreter(rech)) {
+                return 0;
+            }
+            etat.makeMove(tours.get(i));
+            int score = quiescence(rech, profondeur + 1, alpha, beta, !tourIA, etat, demiCoups + 1);
+            etat.unmakeMove();
+            if (tourIA) {
+                best = Math.max(best, score);
+                alpha = Math.max(alpha, best);
+            } else {
+                best = Math.min(best, score);
+                beta = Math.min(beta, best);
+            }
+            if (beta <= alpha) {
+                break;
+            }
         }
-        return score;
+        return best;
     }
 
-    private int hSurPlt(Jeu jeu, Joueur ia) {
-        int score = 0;
-        if (ia.getId() == 1) {
-            score += jeu.getPast().getNbBlancs() + jeu.getPresent().getNbBlancs() + jeu.getFuture().getNbBlancs();
-            score -= jeu.getPast().getNbNoirs() + jeu.getPresent().getNbNoirs() + jeu.getFuture().getNbNoirs();
-        } else {
-            score += jeu.getPast().getNbNoirs() + jeu.getPresent().getNbNoirs() + jeu.getFuture().getNbNoirs();
-            score -= jeu.getPast().getNbBlancs() + jeu.getPresent().getNbBlancs() + jeu.getFuture().getNbBlancs();
+    // Note des tours pour la quiescence : les pièces détruites (celles de
+    // l'adversaire comptent plus), 0 pour un tour calme
+    private static void noterBruyants(Recherche rech, JeuCompact etat, ListeTours tours) {
+        int joueur = etat.getJoueurCourant();
+        int adversaire = etat.getAdversaire();
+        int piecesJoueur = Long.bitCount(etat.getPieces(joueur)) + etat.getNbClones(joueur);
+        int piecesAdversaire = Long.bitCount(etat.getPieces(adversaire));
+        int dernierCoup = -1;
+        int note = 0;
+        for (int i = 0; i < tours.taille(); i++) {
+            int tour = tours.get(i);
+            int position = Tour.position(tour);
+            if (position < 0) {
+                tours.setNote(i, 0);
+                continue;
+            }
+            // Comme dans noterTours, un seul essai pour les tours qui ne
+            // diffèrent que par le plateau suivant
+            if (Tour.sansPlateau(tour) != dernierCoup) {
+                dernierCoup = Tour.sansPlateau(tour);
+                JeuCompact brouillon = rech.brouillon;
+                brouillon.copier(etat);
+                int position2 = brouillon.appliquerCoup(position, Tour.action1(tour));
+                if (position2 >= 0 && Tour.action2(tour) != null) {
+                    brouillon.appliquerCoup(position2, Tour.action2(tour));
+                }
+                // Un clone pris dans la réserve n'est pas une pièce détruite
+                int perduesJoueur = piecesJoueur - Long.bitCount(brouillon.getPieces(joueur)) - brouillon.getNbClones(joueur);
+                int perduesAdversaire = piecesAdversaire - Long.bitCount(brouillon.getPieces(adversaire));
+                note = perduesAdversaire > 0 || perduesJoueur > 0 ? 4 * perduesAdversaire + perduesJoueur : 0;
+            }
+            tours.setNote(i, note);
         }
-        return score;
     }
 
-    // Pour chaque plateau, on ajoute un point si l'ia controle le plateau, on en retire un si l'adversaire le controle
-    private int hControlePlateaux(Jeu jeu, Joueur ia) {
-        int score = 0;
-        if (ia.getId() == 1) {
-            score += jeu.getPast().getNbBlancs() > 0 ? 45 : 0;
-            score += jeu.getPresent().getNbBlancs() > 0 ? 40 : 0;
-            score += jeu.getFuture().getNbBlancs() > 0 ? 35 : 0;
-            score += jeu.getPast().getNbNoirs() > 0 ? -45 : 0;
-            score += jeu.getPresent().getNbNoirs() > 0 ? -40 : 0;
-            score += jeu.getFuture().getNbNoirs() > 0 ? -35 : 0;
-        } else {
-            score += jeu.getPast().getNbNoirs() > 0 ? 45 : 0;
-            score += jeu.getPresent().getNbNoirs() > 0 ? 40 : 0;
-            score += jeu.getFuture().getNbNoirs() > 0 ? 35 : 0;
-            score += jeu.getPast().getNbBlancs() > 0 ? -40 : 0;
-            score += jeu.getPresent().getNbBlancs() > 0 ? -35 : 0;
-            score += jeu.getFuture().getNbBlancs() > 0 ? -30 : 0;
+    // Ordre des tours, sans évaluer l'heuristique : d'abord le meilleur tour
+    // de la table, puis les tours qui font perdre des pièces à l'adversaire
+    // (poussée hors du plateau ou paradoxe), les deux coups meurtriers de la
+    // profondeur, et enfin les autres selon l'historique des coupures
+    private static final int NOTE_TABLE = 1 << 30;
+    private static final int NOTE_PRISE = 1 << 24;
+    private static final int NOTE_MEURTRIER = 1 << 22;
+
+    private void noterTours(Recherche rech, JeuCompact etat, ListeTours tours, int codeTable, boolean tableTransposee, int profondeur) {
+        int joueur = etat.getJoueurCourant();
+        int adversaire = etat.getAdversaire();
+        int piecesJoueur = Long.bitCount(etat.getPieces(joueur));
+        int piecesAdversaire = Long.bitCount(etat.getPieces(adversaire));
+        int[] meurtriers = rech.meurtriers[profondeur];
+
+        // Le générateur ne garde qu'un tour par position atteinte, pas
+        // forcément celui qui est la transposée du tour de la table : le tour
+        // de la table est alors celui qui atteint la même position
+        long apresTable = 0;
+        boolean parPosition = tableTransposee && codeTable != TableTransposition.AUCUN_TOUR && Tour.position(codeTable) >= 0;
+        if (parPosition) {
+            apresTable = simuler(rech.brouillon, etat, codeTable).getHash();
+        }
+
+        // Les tours qui ne diffèrent que par le plateau suivant se suivent dans
+        // la liste et ont les mêmes prises : on ne les simule qu'une fois
+        int dernierCoup = -1;
+        int prises = 0;
+        boolean commeTable = false;
+        for (int i = 0; i < tours.taille(); i++) {
+            int tour = tours.get(i);
+            if (tour == codeTable && !parPosition) {
+                tours.setNote(i, NOTE_TABLE);
+                continue;
+            }
+            int position = Tour.position(tour);
+            if (position < 0) {
+                continue;
+            }
+            if (Tour.sansPlateau(tour) != dernierCoup) {
+                dernierCoup = Tour.sansPlateau(tour);
+                JeuCompact brouillon = simuler(rech.brouillon, etat, tour);
+                commeTable = parPosition && brouillon.getHash() == apresTable;
+                int perduesAdversaire = piecesAdversaire - Long.bitCount(brouillon.getPieces(adversaire));
+                int perduesJoueur = piecesJoueur - Long.bitCount(brouillon.getPieces(joueur));
+                prises = perduesAdversaire > 0 ? 16 * perduesAdversaire - Math.max(0, perduesJoueur) : 0;
+            }
+            if (commeTable && Tour.plateau(tour) == Tour.plateau(codeTable)) {
+                tours.setNote(i, NOTE_TABLE);
+            } else if (prises > 0) {
+                tours.setNote(i, NOTE_PRISE + prises);
+            } else if (tour == meurtriers[0]) {
+                tours.setNote(i, NOTE_MEURTRIER + 1);
+            } else if (tour == meurtriers[1]) {
+                tours.setNote(i, NOTE_MEURTRIER);
+            } else {
+                tours.setNote(i, rech.historique[JeuCompact.plateauDe(position)][position % JeuCompact.NB_CASES][Tour.actions(tour)]);
+            }
         }
-        return score;
     }
 
-    // Pour chaque piece adjacente a une piece de l'ia, on ajoute un point
-    private int hPiecesAdjacentes(Jeu jeu, Joueur ia) {
-        int score = 0;
-        for (int i = 0; i < jeu.getPlateauCourant().getSize(); i++) {
-            for (int j = 0; j < jeu.getPlateauCourant().getSize(); j++) {
-                Piece piece = jeu.getPlateauCourant().getPiece(i, j);
-                if (piece != null && piece.getOwner().equals(ia)) {
-                    if (i > 0 && jeu.getPlateauCourant().getPiece(i - 1, j) != null && jeu.getPlateauCourant().getPiece(i - 1, j).getOwner().equals(ia)) {
-                        score += 1;
-                    }
-                    if (i < jeu.getPlateauCourant().getSize() - 1 && jeu.getPlateauCourant().getPiece(i + 1, j) != null && jeu.getPlateauCourant().getPiece(i + 1, j).getOwner().equals(ia)) {
-                        score += 1;
-                    }
-                    if (j > 0 && jeu.getPlateauCourant().getPiece(i, j - 1) != null && jeu.getPlateauCourant().getPiece(i, j - 1).getOwner().equals(ia)) {
-                        score += 1;
-                    }
-                    if (j < jeu.getPlateauCourant().getSize() - 1 && jeu.getPlateauCourant().getPiece(i, j + 1) != null && jeu.getPlateauCourant().getPiece(i, j + 1).getOwner().equals(ia)) {
-                        score += 1;
-                    }
-                }
+    // Tour de la liste qui mène à la même position qu'un tour lu dans une table
+    // rangée par hash canonique (le générateur n'en garde qu'un par position),
+    // -1 s'il n'y en a pas
+    private static int tourEquivalent(JeuCompact etat, ListeTours tours, int tour) {
+        if (tour < 0) {
+            return -1;
+        }
+        for (int i = 0; i < tours.taille(); i++) {
+            if (tours.get(i) == tour) {
+                return tour;
             }
         }
-        return score;
+        int position = Tour.position(tour);
+        if (position < 0 || JeuCompact.plateauDe(position) != etat.getPlateauCourant()
+                || etat.getProprietaire(position) != etat.getJoueurCourant()) {
+            return -1;
+        }
+        etat.makeMove(tour);
+        long apres = etat.getHash();
+        etat.unmakeMove();
+        for (int i = 0; i < tours.taille(); i++) {
+            etat.makeMove(tours.get(i));
+            boolean meme = etat.getHash() == apres;
+            etat.unmakeMove();
+            if (meme) {
+                return tours.get(i);
+            }
+        }
+        return -1;
     }
 
-    // Pour chaque difference entre les pieces de l'ia sur le plateau et celles dans les NBclones, on enleve un point
-    private int hDiffPionEtClone(Jeu jeu, Joueur ia) {
-        int score = 0;
-        if (ia.getId() == 1) {
-            score += jeu.getPresent().getNbBlancs() + jeu.getPast().getNbBlancs() + jeu.getFuture().getNbBlancs();
-            score -= jeu.getJoueur1().getNbClones();
-        } else {
-            score += jeu.getPresent().getNbNoirs() + jeu.getPast().getNbNoirs() + jeu.getFuture().getNbNoirs();
-            score -= jeu.getJoueur2().getNbClones();
+    // Actions d'un tour (sans le choix du plateau) jouées sur le brouillon
+    private static JeuCompact simuler(JeuCompact brouillon, JeuCompact etat, int tour) {
+        brouillon.copier(etat);
+        int position2 = brouillon.appliquerCoup(Tour.position(tour), Tour.action1(tour));
+        if (position2 >= 0 && Tour.action2(tour) != null) {
+            brouillon.appliquerCoup(position2, Tour.action2(tour));
         }
-        return Math.abs(score);
+        return brouillon;
     }
 
-    // Pour chaque plateau, Pour chaque piece au bord d'un plateau (pas au coin), on enleve un point, si il existe un pion de l'adversaire dont la distance manhattan <= 2, on enleve 2 points
-    private int hBordPlateau(Jeu jeu, Joueur ia) {
-        int score = 0;
-        int size = 4;
-        for (Plateau plt : new Plateau[]{jeu.getPast(), jeu.getPresent(), jeu.getFuture()}) {
-            for (int i = 0; i <= 4; i++) {
-                for (int j = 0; j <= 4; j++) {
-                    boolean estBord = (i == 0 && j == 1)
-                            || (i == 0 && j == 2)
-                            || (i == 1 && j == 0)
-                            || (i == 1 && j == size - 1)
-                            || (i == 2 && j == 0)
-                            || (i == 2 && j == size - 1)
-                            || (i == size - 1 && j == 1)
-                            || (i == size - 1 && j == 2);
-
-                    if (estBord) {
-                        Piece pieceIACourante = plt.getPiece(i, j);
-                        // Verifier si la piece courante appartient a l'IA
-                        if (pieceIACourante != null && pieceIACourante.getOwner().equals(ia)) {
-                            // Si la piece est au bord, on retire 1 point
-                            score += 1;
-                        } else if (pieceIACourante != null && !pieceIACourante.getOwner().equals(ia)) {
-                            score -= 1;
-                        }
-                    }
-                }
+    // Un tour calme qui provoque une coupure devient coup meurtrier de sa
+    // profondeur et gagne des points d'historique
+    private static void retenirCoupure(Recherche rech, int tour, int note, int profondeur, int restante) {
+        if (note >= NOTE_PRISE && note < NOTE_TABLE) {
+            return;
+        }
+        int[] meurtriers = rech.meurtriers[profondeur];
+        if (meurtriers[0] != tour) {
+            meurtriers[1] = meurtriers[0];
+            meurtriers[0] = tour;
+        }
+        int position = Tour.position(tour);
+        if (position >= 0) {
+            int[] historique = rech.historique[JeuCompact.plateauDe(position)][position % JeuCompact.NB_CASES];
+            historique[Tour.actions(tour)] += restante * restante;
+            if (historique[Tour.actions(tour)] >= NOTE_MEURTRIER) {
+                vieillirHistorique(rech);
             }
         }
-        return score;
     }
 
-    // Pour chaque plateau, Pour chaque piece au coin, on enleve 2 points, si il existe un pion de l'adversaire dont la distance manhattan <= 2, on enleve 5 points
-    private int hCoinPlateau(Jeu jeu, Joueur ia) {
-        int score = 0;
-        int size = 4;
-        for (Plateau plt : new Plateau[]{jeu.getPast(), jeu.getPresent(), jeu.getFuture()}) {
-            for (int i = 0; i < size; i++) {
-                for (int j = 0; j < size; j++) {
-                    Piece pieceIACourante = plt.getPiece(i, j);
-
-                    // Verifier si la piece courante appartient a l'IA
-                    if (pieceIACourante != null && pieceIACourante.getOwner().equals(ia)) {
-                        // Verifier si la piece est au coin du plateau
-                        boolean estAuCoin = (i == 0 && j == 0)
-                                || (i == 0 && j == size - 1)
-                                || (i == size - 1 && j == 0)
-                                || (i == size - 1 && j == size - 1);
-
-                        if (estAuCoin) {
-                            // Si la piece est au coin, on retire 1 points
-                            score += 1;
-                        } else {
-                            break; // Si la piece n'est pas au coin, on ne fait rien
-                        }
-                        // Si il existe un pion de l'adversaire dont la distance manhattan <= 2, on enleve 5 points
-                        boolean pieceAdversaireProche = false;
-                        for (int x = 0; x < size; x++) {
-                            for (int y = 0; y < size; y++) {
-                                Piece pieceAdversaire = plt.getPiece(x, y);
-                                if (pieceAdversaire != null && !pieceAdversaire.getOwner().equals(ia)) {
-                                    int distanceManhattan = Math.abs(i - x) + Math.abs(j - y);
-                                    if (distanceManhattan <= 2) {
-                                        pieceAdversaireProche = true;
-                                        break;
-                                    }
-                                }
-                            }
-                            if (pieceAdversaireProche) {
-                                break;
-                            }
-                        }
-                        if (pieceAdversaireProche) {
-                            score += 5;
-                        }
-                    }
+    // Avant une nouvelle recherche : les coups meurtriers ne correspondent plus
+    // aux mêmes positions, l'historique garde la moitié de son poids
+    private static void oublierOrdre(Recherche rech) {
+        for (int[] meurtriers : rech.meurtriers) {
+            meurtriers[0] = TableTransposition.AUCUN_TOUR;
+            meurtriers[1] = TableTransposition.AUCUN_TOUR;
+        }
+        vieillirHistorique(rech);
+    }
 
+    private static void vieillirHistorique(Recherche rech) {
+        for (int[][] plateau : rech.historique) {
+            for (int[] cases : plateau) {
+                for (int k = 0; k < cases.length; k++) {
+                    cases[k] >>= 1;
                 }
             }
         }
+    }
+
+    // Les scores de victoire dépendent de la profondeur depuis la racine : la
+    // table les garde relatifs au noeud pour qu'ils restent justes ailleurs
+    private static int scoreVersTable(int score, int profondeur) {
+        if (score > MAT / 2) {
+            return score + profondeur;
+        } else if (score < -MAT / 2) {
+            return score - profondeur;
+        }
         return score;
     }
 
-    private int hCentrePlateau(Jeu jeu, Joueur ia) {
-        // Pour chaque piece de l'ia au centre du plateau, on ajoute 1 point
-        int score = 0;
-        for (Plateau plt : new Plateau[]{jeu.getPast(), jeu.getPresent(), jeu.getFuture()}) {
-            for (int i = 1; i < plt.getSize() - 1; i++) {
-                for (int j = 1; j < plt.getSize() - 1; j++) {
-                    Piece pieceIACourante = plt.getPiece(i, j);
-                    if (pieceIACourante != null && pieceIACourante.getOwner().equals(ia)) {
-                        score += 1;
-                    }
-                }
-            }
+    private static int scoreDepuisTable(int score, int profondeur) {
+        if (score > MAT / 2) {
+            return score - profondeur;
+        } else if (score < -MAT / 2) {
+            return score + profondeur;
         }
         return score;
     }
 
-    // Pour chaque plateau, si le pion de l'ia est au bord et il existe un pion de l'adversaire dont la distance manhattan <= 2, on enleve 5 points 
-    private int hChoixPlateau(Jeu jeu, Joueur ia) {
-        int score = 0;
-        Plateau plt = jeu.getPlateauByType(ia.getProchainPlateau());
-        Joueur adversaire = ia.getId() == 1 ? jeu.getJoueur2() : jeu.getJoueur1();
-        // score += ia.getId() == 1 ? (plt.getNbBlancs() > 0 ? 1 : 0) : (plt.getNbNoirs() > 0 ? 1 : 0);
+    // heuristique
+    private int heuristique(JeuCompact jeu, boolean tourIA, boolean debug) {
+        int joueur = jeu.getJoueurCourant();
+        if (!tourIA) {
+            joueur = 3 - joueur;
+        }
+        return evaluer(jeu, joueur, this.mode.equals("HARD") ? poidsHard : poidsMedium);
+    }
 
-        int num = ia.getId() == 1 ? plt.getNbBlancs() : plt.getNbNoirs();
-        if (num == 0) {
-            return 10;
+    /**
+     * Score d'une position pour un joueur, somme des termes de l'heuristique
+     * multipliés par leurs poids (sert aussi aux simulations de IAmcts)
+     */
+    public static int evaluer(JeuCompact jeu, int joueur, PoidsHeuristique poids) {
+        // Les termes de poids nul ne sont pas calculés
+        int[] p = poids.poids;
+        int score = p[PoidsHeuristique.MATERIEL] * hMateriel(jeu, joueur);
+        if (p[PoidsHeuristique.CONTROLE_PLATEAUX] != 0) {
+            score += p[PoidsHeuristique.CONTROLE_PLATEAUX] * hControlePlateaux(jeu, joueur);
         }
+        if (p[PoidsHeuristique.PIECES_ADJACENTES] != 0) {
+            score += p[PoidsHeuristique.PIECES_ADJACENTES] * hPiecesAdjacentes(jeu, joueur);
+        }
+        if (p[PoidsHeuristique.DIFF_PION_CLONE] != 0) {
+            score += p[PoidsHeuristique.DIFF_PION_CLONE] * hDiffPionEtClone(jeu, joueur);
+        }
+        if (p[PoidsHeuristique.BORD] != 0) {
+            score += p[PoidsHeuristique.BORD] * hBordPlateau(jeu, joueur);
+        }
+        if (p[PoidsHeuristique.COIN] != 0) {
+            score += p[PoidsHeuristique.COIN] * hCoinPlateau(jeu, joueur);
+        }
+        if (p[PoidsHeuristique.CHOIX_PLATEAU] != 0) {
+            score += p[PoidsHeuristique.CHOIX_PLATEAU] * hChoixPlateau(jeu, joueur);
+        }
+        if (p[PoidsHeuristique.CENTRE] != 0) {
+            score += p[PoidsHeuristique.CENTRE] * hCentrePlateau(jeu, joueur);
+        }
+        if (p[PoidsHeuristique.CLONE] != 0) {
+            score += p[PoidsHeuristique.CLONE] * hClone(jeu, joueur);
+        }
+        if (p[PoidsHeuristique.SUR_PLATEAU] != 0) {
+            score += p[PoidsHeuristique.SUR_PLATEAU] * hSurPlt(jeu, joueur);
+        }
+        return score;
+    }
 
-        // si le pion du ia est au bord et il existe un pion de l'adversaire dont la distance manhattan <= 2, on enleve 1 point
-        if (adversaire.getProchainPlateau() == plt.getType()) {
-            for (int i = 0; i < plt.getSize(); i++) {
-                for (int j = 0; j < plt.getSize(); j++) {
-                    Piece pieceIACourante = plt.getPiece(i, j);
-                    if (pieceIACourante != null && pieceIACourante.getOwner().equals(ia)) {
-                        boolean estBord = (i == 0 && j == 1)
-                                || (i == 0 && j == 2)
-                                || (i == 1 && j == 0)
-                                || (i == 1 && j == plt.getSize() - 1)
-                                || (i == 2 && j == 0)
-                                || (i == 2 && j == plt.getSize() - 1)
-                                || (i == plt.getSize() - 1 && j == 1)
-                                || (i == plt.getSize() - 1 && j == 2)
-                                || (i == 0 && j == 0)
-                                || (i == 0 && j == plt.getSize() - 1)
-                                || (i == plt.getSize() - 1 && j == 0)
-                                || (i == plt.getSize() - 1 && j == plt.getSize() - 1);
-
-                        if (estBord) {
-                            score += 1;
-                            boolean pieceAdversaireProche = false;
-                            for (int x = 0; x < plt.getSize(); x++) {
-                                for (int y = 0; y < plt.getSize(); y++) {
-                                    Piece pieceAdversaire = plt.getPiece(x, y);
-                                    if (pieceAdversaire != null && !pieceAdversaire.getOwner().equals(ia)) {
-                                        int distanceManhattan = Math.abs(i - x) + Math.abs(j - y);
-                                        if (distanceManhattan <= 2) {
-                                            pieceAdversaireProche = true;
-                                            break;
-                                        }
-                                    }
-                                }
-                                if (pieceAdversaireProche) {
-                                    break;
-                                }
-                            }
-                            if (pieceAdversaireProche) {
-                                score += 5;
-                            }
-                        }
-                    }
-                }
-            }
+    /**
+     * Valeur d'un terme de l'heuristique, avant son poids (sert aussi au
+     * réglage des poids par Banc.Texel)
+     *
+     * @param joueur le joueur pour qui le terme est compté
+     * @param terme un des termes de {@link PoidsHeuristique}
+     */
+    public static int terme(JeuCompact jeu, int joueur, int terme) {
+        switch (terme) {
+            case PoidsHeuristique.MATERIEL:
+                return hMateriel(jeu, joueur);
+            case PoidsHeuristique.CONTROLE_PLATEAUX:
+                return hControlePlateaux(jeu, joueur);
+            case PoidsHeuristique.PIECES_ADJACENTES:
+                return hPiecesAdjacentes(jeu, joueur);
+            case PoidsHeuristique.DIFF_PION_CLONE:
+                return hDiffPionEtClone(jeu, joueur);
+            case PoidsHeuristique.BORD:
+                return hBordPlateau(jeu, joueur);
+            case PoidsHeuristique.COIN:
+                return hCoinPlateau(jeu, joueur);
+            case PoidsHeuristique.CHOIX_PLATEAU:
+                return hChoixPlateau(jeu, joueur);
+            case PoidsHeuristique.CENTRE:
+                return hCentrePlateau(jeu, joueur);
+            case PoidsHeuristique.CLONE:
+                return hClone(jeu, joueur);
+            case PoidsHeuristique.SUR_PLATEAU:
+                return hSurPlt(jeu, joueur);
+            default:
+                throw new IllegalArgumentException("IAminimax: terme inconnu " + terme);
         }
+    }
 
+    // Pour chaque piece en plus de l'adversaire, on ajoute un point
+    private static int hMateriel(JeuCompact jeu, int ia) {
+        int plateau = jeu.getPlateauCourant();
+        int score = jeu.nbPieces(ia, plateau) - jeu.nbPieces(3 - ia, plateau);
+        score += jeu.getNbClones(ia);
+        score -= jeu.getNbClones(3 - ia);
         return score;
     }
 
-    private ArrayList<IAFields<Piece, String, String, Plateau.TypePlateau>> getTourPossible(Joueur joueur, Jeu clone) {
-        int gameState;
-        if ((gameState = clone.gameOver(joueur)) != 0) {
-            return new ArrayList<>();
-        }
-        ArrayList<IAFields<Piece, String, String, Plateau.TypePlateau>> listeCoups = new ArrayList<>();
-        IAFields<Piece, String, String, Plateau.TypePlateau> coup;
-        ArrayList<Piece> pieces = listePieces(clone);
-        if (!pieces.isEmpty()) {
-            for (Piece piece : pieces) {
-                //sauvegarde de la position de la piece
-                int posx = (int) piece.getPosition().getX();
-                int posy = (int) piece.getPosition().getY();
-                ////System.out.println("DEBUG Etat GAME clone: " + clone.getGameStateAsString());
-
-                ArrayList<Coup> coups = clone.getCoupPossibles(clone.getPlateauCourant(), piece);
-                if (coups == null) {
-                    //System.out.println("IAMinimax: coups null");
-                    continue;
-                }
+    private static int hClone(JeuCompact jeu, int ia) {
+        return jeu.getNbClones(ia) - jeu.getNbClones(3 - ia);
+    }
 
-                for (Coup coup1 : coups) {
-                    Jeu jeuClone1 = new Jeu(clone);
-                    Piece p2 = jeuClone1.getPlateauCourant().getPiece((int) coup1.getPiece().getPosition().getX(), (int) coup1.getPiece().getPosition().getY());
+    private static int hSurPlt(JeuCompact jeu, int ia) {
+        return Long.bitCount(jeu.getPieces(ia)) - Long.bitCount(jeu.getPieces(3 - ia));
+    }
 
-                    Coup newCoup1 = new Coup(jeuClone1.getPlateauByType(clone.getPlateauCourant().getType()).getPiece(posx, posy), jeuClone1.getPlateauCourant(), coup1.getTypeCoup());
-                    //traduction en coup et application
-                    jeuClone1.appliquerCoup(newCoup1);
+    // Pour chaque plateau, on ajoute un point si l'ia controle le plateau, on en retire un si l'adversaire le controle
+    private static int hControlePlateaux(JeuCompact jeu, int ia) {
+        int score = 0;
+        if (ia == 1) {
+            score += jeu.nbPieces(1, JeuCompact.PAST) > 0 ? 45 : 0;
+            score += jeu.nbPieces(1, JeuCompact.PRESENT) > 0 ? 40 : 0;
+            score += jeu.nbPieces(1, JeuCompact.FUTURE) > 0 ? 35 : 0;
+            score += jeu.nbPieces(2, JeuCompact.PAST) > 0 ? -45 : 0;
+            score += jeu.nbPieces(2, JeuCompact.PRESENT) > 0 ? -40 : 0;
+            score += jeu.nbPieces(2, JeuCompact.FUTURE) > 0 ? -35 : 0;
+        } else {
+            score += jeu.nbPieces(2, JeuCompact.PAST) > 0 ? 45 : 0;
+            score += jeu.nbPieces(2, JeuCompact.PRESENT) > 0 ? 40 : 0;
+            score += jeu.nbPieces(2, JeuCompact.FUTURE) > 0 ? 35 : 0;
+            score += jeu.nbPieces(1, JeuCompact.PAST) > 0 ? -40 : 0;
+            score += jeu.nbPieces(1, JeuCompact.PRESENT) > 0 ? -35 : 0;
+            score += jeu.nbPieces(1, JeuCompact.FUTURE) > 0 ? -30 : 0;
+        }
+        return score;
+    }
 
-                    ArrayList<Coup> coups2 = jeuClone1.getCoupPossibles(jeuClone1.getPlateauCourant(), p2);
+    // Les termes suivants lisent directement les bitboards de l'état : chaque
+    // compte de pièces est un bitCount sur un masque précalculé, sans parcourir
+    // les cases
+    private static final long BORDS = JeuCompact.surTroisPlateaux(JeuCompact.MASQUE_BORDS);
+    private static final long CENTRES = JeuCompact.surTroisPlateaux(JeuCompact.MASQUE_CENTRE);
 
-                    if (coups2.isEmpty()) {
-                        //System.out.println("IAMinimax: coups 2 null");
-                        for (Plateau.TypePlateau plateau : PlateauValide(joueur.getProchainPlateau())) {
-                            coup = new IAFields<>(piece, coup1.getTypeCoup().name(), null, plateau);
-                            listeCoups.add(coup);
-                        }
-                    } else {
-                        for (Coup coup2 : coups2) { // ERREUR, si on jump ou clone, ça change le plateau courant
-                            for (Plateau.TypePlateau plateau : PlateauValide(joueur.getProchainPlateau())) {
-                                coup = new IAFields<>(piece, coup1.getTypeCoup().name(), coup2.getTypeCoup().name(), plateau);
-                                ////System.out.println("DEBUG "+coup+", "+posx+" "+posy);
-                                listeCoups.add(coup);
-                            }
-                        }
-                    }
+    // Pour chaque piece adjacente a une piece de l'ia, on ajoute un point
+    private static int hPiecesAdjacentes(JeuCompact jeu, int ia) {
+        int pieces = jeu.getPiecesPlateau(ia, jeu.getPlateauCourant());
+        // Chaque paire de voisins compte une fois pour chacune des deux pièces
+        int horizontales = pieces & (pieces >>> 1) & JeuCompact.MASQUE_SANS_DERNIERE_COLONNE;
+        int verticales = pieces & (pieces >>> JeuCompact.TAILLE) & JeuCompact.MASQUE_SANS_DERNIERE_LIGNE;
+        return 2 * (Integer.bitCount(horizontales) + Integer.bitCount(verticales));
+    }
 
+    // Pour chaque difference entre les pieces de l'ia sur le plateau et celles dans les NBclones, on enleve un point
+    private static int hDiffPionEtClone(JeuCompact jeu, int ia) {
+        return Math.abs(Long.bitCount(jeu.getPieces(ia)) - jeu.getNbClones(ia));
+    }
+
+    // Pour chaque plateau, Pour chaque piece au bord d'un plateau (pas au coin), on enleve un point, si il existe un pion de l'adversaire dont la distance manhattan <= 2, on enleve 2 points
+    private static int hBordPlateau(JeuCompact jeu, int ia) {
+        return Long.bitCount(jeu.getPieces(ia) & BORDS) - Long.bitCount(jeu.getPieces(3 - ia) & BORDS);
+    }
+
+    // Pour chaque plateau, Pour chaque piece au coin, on enleve 2 points, si il existe un pion de l'adversaire dont la distance manhattan <= 2, on enleve 5 points
+    private static int hCoinPlateau(JeuCompact jeu, int ia) {
+        int score = 0;
+        int size = JeuCompact.TAILLE;
+        for (int plt = JeuCompact.PAST; plt <= JeuCompact.FUTURE; plt++) {
+            int pieces = jeu.getPiecesPlateau(ia, plt);
+            int adverses = jeu.getPiecesPlateau(3 - ia, plt);
+            // Dans une ligne, la recherche des coins s'arrête à la première
+            // piece de l'ia qui n'est pas au coin : le coin de droite ne compte
+            // que si les deux cases du milieu de la ligne sont libres de l'ia
+            for (int ligne = 0; ligne < size; ligne += size - 1) {
+                int gauche = ligne * size;
+                int droite = gauche + size - 1;
+                if ((pieces & (1 << gauche)) != 0) {
+                    score += coin(gauche, adverses);
+                }
+                if ((pieces & (1 << droite)) != 0 && (pieces & (0b0110 << gauche)) == 0) {
+                    score += coin(droite, adverses);
                 }
-                piece.setPosition(new Point(posx, posy));
-            }
-        } else {
-            for (Plateau.TypePlateau plateau : PlateauValide(joueur.getProchainPlateau())) {
-                coup = new IAFields<>(null, null, null, plateau);
-                listeCoups.add(coup);
             }
-            //System.out.println("Liste des coups possibles: " + listeCoups);
         }
+        return score;
+    }
 
-        return listeCoups;
+    // Un point pour la piece au coin, cinq de plus si un pion de l'adversaire est à distance manhattan <= 2
+    private static int coin(int c, int adverses) {
+        return (JeuCompact.proches(c) & adverses) != 0 ? 6 : 1;
     }
 
-    private ArrayList<Piece> listePieces(Jeu jeu) {
-        ////System.out.println("LISTE DES PIECES DU JOUEUR "+joueur.getNom()+", au plateau "+plateauCourant.plateauToString()+" : "+listePieces.size());
-        return jeu.getPlateauCourant().getPieces(jeu.getJoueurCourant());
+    private static int hCentrePlateau(JeuCompact jeu, int ia) {
+        // Pour chaque piece de l'ia au centre du plateau, on ajoute 1 point
+        return Long.bitCount(jeu.getPieces(ia) & CENTRES);
     }
 
-    private ArrayList<Plateau.TypePlateau> PlateauValide(Plateau.TypePlateau precedent) {
-        ArrayList<Plateau.TypePlateau> candidats = new ArrayList<>();
+    // Pour chaque plateau, si le pion de l'ia est au bord et il existe un pion de l'adversaire dont la distance manhattan <= 2, on enleve 5 points 
+    private static int hChoixPlateau(JeuCompact jeu, int ia) {
+        int score = 0;
+        int plt = jeu.getProchainPlateau(ia);
+        int adversaire = 3 - ia;
 
-        if (precedent != Plateau.TypePlateau.PAST) {
-            candidats.add(Plateau.TypePlateau.PAST);
-        }
-        if (precedent != Plateau.TypePlateau.PRESENT) {
-            candidats.add(Plateau.TypePlateau.PRESENT);
+        int pieces = jeu.getPiecesPlateau(ia, plt);
+        if (pieces == 0) {
+            return 10;
         }
-        if (precedent != Plateau.TypePlateau.FUTURE) {
-            candidats.add(Plateau.TypePlateau.FUTURE);
+
+        // si le pion du ia est au bord et il existe un pion de l'adversaire dont la distance manhattan <= 2, on enleve 1 point
+        if (jeu.getProchainPlateau(adversaire) == plt) {
+            int adverses = jeu.getPiecesPlateau(adversaire, plt);
+            int bord = pieces & JeuCompact.MASQUE_POURTOUR;
+            while (bord != 0) {
+                int c = Integer.numberOfTrailingZeros(bord);
+                bord &= bord - 1;
+                score += (JeuCompact.proches(c) & adverses) != 0 ? 6 : 1;
+            }
         }
 
-        return candidats;
+        return score;
     }
 
 }
@@ -0,0 +1,200 @@
+package Network;
+
+import Modele.JeuCompact;
+import Modele.ListeTours;
+import Modele.Tour;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Livre d'ouvertures : pour des positions du début de partie, les tours
+ * choisis par une recherche profonde faite à l'avance (Banc.GenererLivre),
+ * chacun avec un poids.
+ *
+ * Le fichier est projeté en mémoire en lecture seule et partagé par toutes
+ * les IA. Après un en-tête (magique, version, nombre d'entrées), il contient
+ * des entrées de 16 octets triées par hash : hash canonique de la position
+ * (long), code du tour dans le sens de la forme canonique (int), poids (int).
+ * Les tours d'une même position se suivent. Une position et sa transposée
+ * partagent ainsi leurs entrées (voir {@link JeuCompact#getHashCanonique()}).
+ *
+ * Le livre par défaut est lu dans -Dttykm.ia.livre (res/IA/livre.bin par défaut),
+ * s'il existe.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public final class LivreOuvertures {
+
+    private static final int MAGIQUE = 0x4C495652; // "LIVR"
+    private static final int VERSION = 2; // 2 : hash canonique
+    private static final int ENTETE = 12;
+    private static final int TAILLE_ENTREE = 16;
+
+    public static final String FICHIER_LIVRE = System.getProperty("ttykm.ia.livre", "res/IA/livre.bin");
+    private static LivreOuvertures parDefaut;
+    private static boolean parDefautLu;
+
+    private final MappedByteBuffer donnees;
+    private final int entrees;
+
+    private LivreOuvertures(MappedByteBuffer donnees, int entrees) {
+        this.donnees = donnees;
+        this.entrees = entrees;
+    }
+
+    /**
+     * Projette un livre en mémoire
+     *
+     * @throws IOException si le fichier ne peut pas être lu ou n'est pas un
+     * livre
+     */
+    public static LivreOuvertures ouvrir(Path fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            MappedByteBuffer donnees = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (canal.size() < ENTETE || donnees.getInt(0) != MAGIQUE || donnees.getInt(4) != VERSION) {
+                throw new IOException("LivreOuvertures: " + fichier + " n'est pas un livre (version " + VERSION + ")");
+            }
+            int entrees = donnees.getInt(8);
+            if (ENTETE + (long) entrees * TAILLE_ENTREE != canal.size()) {
+                throw new IOException("LivreOuvertures: taille de " + fichier + " incohérente");
+            }
+            return new LivreOuvertures(donnees, entrees);
+        }
+    }
+
+    /**
+     * Livre lu une fois au démarrage dans le fichier par défaut
+     *
+     * @return le livre, null s'il n'y en a pas
+     */
+    public static synchronized LivreOuvertures parDefaut() {
+        if (!parDefautLu) {
+            parDefautLu = true;
+            Path fichier = Paths.get(FICHIER_LIVRE);
+            if (Files.exists(fichier)) {
+                try {
+                    parDefaut = ouvrir(fichier);
+                    System.out.println("Livre d'ouvertures : " + parDefaut.entrees + " tours lus dans " + fichier);
+                } catch (IOException e) {
+                    System.err.println("Impossible de lire le livre " + fichier + " : " + e.getMessage());
+                }
+            }
+        }
+        return parDefaut;
+    }
+
+    /**
+     * @return le nombre de tours du livre, toutes positions confondues
+     */
+    public int taille() {
+        return entrees;
+    }
+
+    /**
+     * Tours du livre pour une position
+     *
+     * @param tours reçoit les tours, avec leur poids comme note
+     * @return faux si la position n'est pas dans le livre
+     */
+    public boolean tours(JeuCompact position, ListeTours tours) {
+        long hash = position.getHashCanonique();
+        tours.vider();
+        for (int i = premiere(hash); i < entrees && hashDe(i) == hash; i++) {
+            int base = ENTETE + i * TAILLE_ENTREE;
+            tours.ajouter(versPosition(position, donnees.getInt(base + 8)));
+            tours.setNote(tours.taille() - 1, donnees.getInt(base + 12));
+        }
+        return !tours.estVide();
+    }
+
+    /**
+     * Tire un tour du livre pour une position, selon les poids
+     *
+     * @return le code du tour, -1 si la position n'est pas dans le livre
+     */
+    public int choisir(JeuCompact position, Random r) {
+        long hash = position.getHashCanonique();
+        int debut = premiere(hash);
+        int total = 0;
+        int fin = debut;
+        for (; fin < entrees && hashDe(fin) == hash; fin++) {
+            total += donnees.getInt(ENTETE + fin * TAILLE_ENTREE + 12);
+        }
+        if (total <= 0) {
+            return -1;
+        }
+        int tirage = r.nextInt(total);
+        for (int i = debut; i < fin; i++) {
+            int base = ENTETE + i * TAILLE_ENTREE;
+            tirage -= donnees.getInt(base + 12);
+            if (tirage < 0) {
+                return versPosition(position, donnees.getInt(base + 8));
+            }
+        }
+        return -1;
+    }
+
+    // Tour du livre (sens canonique) dans le sens de la position
+    private static int versPosition(JeuCompact position, int tour) {
+        return position.estTransposee() ? Tour.transposer(tour) : tour;
+    }
+
+    // Première entrée de hash >= hash (recherche dichotomique)
+    private int premiere(long hash) {
+        int bas = 0;
+        int haut = entrees;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (hashDe(milieu) < hash) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+
+    private long hashDe(int i) {
+        return donnees.getLong(ENTETE + i * TAILLE_ENTREE);
+    }
+
+    /**
+     * Écrit un livre
+     *
+     * @param positions pour chaque hash canonique de position, ses tours dans
+     * le sens de la forme canonique, avec leur poids comme note
+     */
+    public static void ecrire(Path fichier, Map<Long, ListeTours> positions) throws IOException {
+        List<Long> hashs = new ArrayList<>(positions.keySet());
+        hashs.sort(null);
+        int entrees = 0;
+        for (ListeTours tours : positions.values()) {
+            entrees += tours.taille();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(fichier)))) {
+            out.writeInt(MAGIQUE);
+            out.writeInt(VERSION);
+            out.writeInt(entrees);
+            for (long hash : hashs) {
+                ListeTours tours = positions.get(hash);
+                for (int i = 0; i < tours.taille(); i++) {
+                    out.writeLong(hash);
+                    out.writeInt(tours.get(i));
+                    out.writeInt(tours.getNote(i));
+                }
+            }
+        }
+    }
+}
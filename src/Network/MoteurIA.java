@@ -0,0 +1,143 @@
+package Network;
+
+import Modele.IAFields;
+import Modele.Jeu;
+import Modele.JeuCompact;
+import Modele.Piece;
+import Modele.Plateau;
+import Modele.Tour;
+
+/**
+ * Moteur de l'IA, appelé par AIClient et GameClient : {@link IAminimax}
+ * (alpha-bêta) ou {@link IAmcts} (Monte-Carlo).
+ *
+ * Le moteur est choisi par -Dttykm.ia.moteur (minimax par défaut, ou mcts).
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public interface MoteurIA {
+
+    /**
+     * Crée le moteur choisi par -Dttykm.ia.moteur
+     *
+     * @param difficulte difficulté de 1 à 5
+     * @param jeu le jeu de la partie, peut être null
+     */
+    static MoteurIA creer(int difficulte, Jeu jeu) {
+        return creer(difficulte, jeu, (TableTransposition) null);
+    }
+
+    /**
+     * Crée le moteur choisi par -Dttykm.ia.moteur
+     *
+     * @param difficulte difficulté de 1 à 5
+     * @param jeu le jeu de la partie, peut être null
+     * @param table table de transposition de IAminimax, qui peut être
+     * partagée entre moteurs du même joueur ; null pour une table propre de
+     * taille par défaut
+     */
+    static MoteurIA creer(int difficulte, Jeu jeu, TableTransposition table) {
+        String moteur = System.getProperty("ttykm.ia.moteur", "minimax");
+        if (moteur.equalsIgnoreCase("mcts")) {
+            return new IAmcts(difficulte);
+        }
+        if (!moteur.equalsIgnoreCase("minimax")) {
+            System.err.println("Moteur IA inconnu : " + moteur + ", minimax utilisé");
+        }
+        return table != null ? new IAminimax(difficulte, jeu, table) : new IAminimax(difficulte, jeu);
+    }
+
+    /**
+     * Cherche le tour du joueur courant
+     *
+     * @param position l'état, qui n'est pas modifié
+     * @return le code du tour choisi (voir {@link Tour}), -1 si le joueur
+     * courant n'a pas de tour
+     */
+    int chercherTour(JeuCompact position);
+
+    /**
+     * Cherche le tour du joueur courant et le traduit en pièce, actions et
+     * plateau du jeu
+     *
+     * @return le tour, null si le joueur courant n'a pas de tour
+     */
+    default IAFields<Piece, String, String, Plateau.TypePlateau> coupIA(Jeu gameState) {
+        int tour = chercherTour(new JeuCompact(gameState));
+        if (tour < 0) {
+            return null;
+        }
+        return versTourJeu(tour, gameState);
+    }
+
+    /**
+     * Change les limites de la recherche
+     *
+     * @param profondeur profondeur maximale : de l'approfondissement itératif
+     * pour IAminimax, des simulations pour IAmcts
+     * @param tempsMs temps maximal par tour en millisecondes
+     */
+    void setLimites(int profondeur, long tempsMs);
+
+    /**
+     * Change seulement le temps maximal par tour, en gardant la profondeur
+     *
+     * @param tempsMs temps maximal par tour en millisecondes
+     */
+    void setTemps(long tempsMs);
+
+    /**
+     * Change le nombre de threads de la recherche. Par défaut, la valeur de
+     * -Dttykm.ia.threads
+     *
+     * @param threads nombre de threads, 1 pour la recherche séquentielle
+     */
+    void setThreads(int threads);
+
+    /**
+     * Fixe la graine des tirages au hasard du moteur
+     */
+    void setGraine(long graine);
+
+    /**
+     * Demande à la recherche en cours, depuis un autre thread, de s'arrêter au
+     * plus tôt. Sans effet sur une recherche qui n'a pas encore commencé : le
+     * tour renvoyé par une recherche interrompue ne doit pas servir
+     */
+    void interrompre();
+
+    /**
+     * Oublie ce que les recherches précédentes ont appris, pour qu'une partie
+     * ne dépende pas des précédentes
+     */
+    void nouvellePartie();
+
+    /**
+     * @return le travail du dernier tour cherché : noeuds pour IAminimax,
+     * simulations pour IAmcts
+     */
+    long getNoeuds();
+
+    /**
+     * Active ou coupe les messages de la recherche sur la sortie standard
+     */
+    void setVerbeux(boolean verbeux);
+
+    /**
+     * Traduit le code d'un tour en pièce, actions et plateau du jeu
+     */
+    static IAFields<Piece, String, String, Plateau.TypePlateau> versTourJeu(int tour, Jeu gameState) {
+        Piece piece = null;
+        String action1 = null;
+        String action2 = null;
+        int position = Tour.position(tour);
+        if (position >= 0) {
+            Plateau plateau = gameState.getPlateauByType(Plateau.TypePlateau.values()[JeuCompact.plateauDe(position)]);
+            piece = plateau.getPiece(JeuCompact.ligneDe(position), JeuCompact.colonneDe(position));
+            action1 = Tour.action1(tour).name();
+            action2 = Tour.action2(tour) == null ? null : Tour.action2(tour).name();
+        }
+        return new IAFields<>(piece, action1, action2, Plateau.TypePlateau.values()[Tour.plateau(tour)]);
+    }
+}
@@ -0,0 +1,189 @@
+package Network;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Poids des termes de l'heuristique de {@link IAminimax}.
+ *
+ * Le score d'une position est la somme des termes multipliés par leur poids
+ * (un poids négatif pénalise le terme). HARD et MEDIUM sont les poids choisis
+ * à la main pour les difficultés ; MEDIUM sert aussi à EASY et au départage
+ * des tours de même score. Un profil s'écrit sous la forme
+ * "materiel=25,controle=1,..." ; les termes absents valent 0.
+ *
+ * Au démarrage, les poids de chaque difficulté sont lus dans le fichier de
+ * profils donné par -Dttykm.ia.poids (res/IA/poids.properties par défaut), s'il
+ * existe : une ligne "hard=..." et/ou "medium=...", comme l'écrit
+ * Banc.Texel. Sans fichier, ce sont les poids choisis à la main.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public final class PoidsHeuristique {
+
+    // Termes de l'heuristique, dans l'ordre des poids
+    public static final int MATERIEL = 0;
+    public static final int CONTROLE_PLATEAUX = 1;
+    public static final int PIECES_ADJACENTES = 2;
+    public static final int DIFF_PION_CLONE = 3;
+    public static final int BORD = 4;
+    public static final int COIN = 5;
+    public static final int CHOIX_PLATEAU = 6;
+    public static final int CENTRE = 7;
+    public static final int CLONE = 8;
+    public static final int SUR_PLATEAU = 9;
+    public static final int NB_TERMES = 10;
+
+    public static final String[] NOMS = {
+        "materiel", "controle", "adjacentes", "pionclone", "bord",
+        "coin", "choix", "centre", "clone", "surplateau"
+    };
+
+    public static final PoidsHeuristique HARD = new PoidsHeuristique(25, 1, -1, -5, -3, -3, 0, 2, 0, 0);
+    public static final PoidsHeuristique MEDIUM = new PoidsHeuristique(25, 1, -3, -5, -3, -5, -2, 2, 2, 2);
+
+    public static final String FICHIER_PROFILS = System.getProperty("ttykm.ia.poids", "res/IA/poids.properties");
+    private static Properties profils; // lu une fois, au premier appel de pourMode
+
+    final int[] poids; // lu directement par IAminimax.heuristique
+
+    /**
+     * @param poids un poids par terme, dans l'ordre MATERIEL ... SUR_PLATEAU
+     */
+    public PoidsHeuristique(int... poids) {
+        if (poids.length != NB_TERMES) {
+            throw new IllegalArgumentException("PoidsHeuristique: " + NB_TERMES + " poids attendus, " + poids.length + " reçus");
+        }
+        this.poids = poids.clone();
+    }
+
+    public int get(int terme) {
+        return poids[terme];
+    }
+
+    public int[] toArray() {
+        return poids.clone();
+    }
+
+    /**
+     * Lit un profil écrit par {@link #toString()}
+     *
+     * @param texte "nom=poids" séparés par des virgules
+     * @return les poids
+     * @throws IllegalArgumentException si un terme est inconnu ou un poids
+     * n'est pas un entier
+     */
+    public static PoidsHeuristique depuisTexte(String texte) {
+        int[] poids = new int[NB_TERMES];
+        for (String morceau : texte.split(",")) {
+            morceau = morceau.trim();
+            if (morceau.isEmpty()) {
+                continue;
+            }
+            int egal = morceau.indexOf('=');
+            if (egal < 0) {
+                throw new IllegalArgumentException("PoidsHeuristique: \"nom=poids\" attendu : " + morceau);
+            }
+            int terme = Arrays.asList(NOMS).indexOf(morceau.substring(0, egal).trim());
+            if (terme < 0) {
+                throw new IllegalArgumentException("PoidsHeuristique: terme inconnu : " + morceau);
+            }
+            poids[terme] = Integer.parseInt(morceau.substring(egal + 1).trim());
+        }
+        return new PoidsHeuristique(poids);
+    }
+
+    /**
+     * Poids d'une difficulté au démarrage : ceux du fichier de profils s'il
+     * en donne, sinon HARD ou MEDIUM
+     *
+     * @param mode "HARD" ou "MEDIUM"
+     */
+    public static synchronized PoidsHeuristique pourMode(String mode) {
+        PoidsHeuristique defaut = mode.equals("HARD") ? HARD : MEDIUM;
+        if (profils == null) {
+            profils = new Properties();
+            Path fichier = Paths.get(FICHIER_PROFILS);
+            if (Files.exists(fichier)) {
+                try {
+                    profils = lireProfils(fichier);
+                    System.out.println("Poids de l'IA lus dans " + fichier);
+                } catch (IOException e) {
+                    System.err.println("Impossible de lire les poids " + fichier + " : " + e.getMessage());
+                }
+            }
+        }
+        String texte = profils.getProperty(mode.toLowerCase());
+        if (texte == null) {
+            return defaut;
+        }
+        try {
+            return depuisTexte(texte);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Poids " + mode.toLowerCase() + " ignorés : " + e.getMessage());
+            return defaut;
+        }
+    }
+
+    /**
+     * Lit un fichier de profils (une ligne "mode=profil" par difficulté)
+     */
+    public static Properties lireProfils(Path fichier) throws IOException {
+        Properties p = new Properties();
+        try (Reader in = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            p.load(in);
+        }
+        return p;
+    }
+
+    /**
+     * Écrit le profil d'une difficulté dans un fichier de profils, en gardant
+     * ceux des autres difficultés
+     *
+     * @param mode "HARD" ou "MEDIUM"
+     */
+    public static void enregistrer(Path fichier, String mode, PoidsHeuristique poids, String commentaire) throws IOException {
+        Properties p = Files.exists(fichier) ? lireProfils(fichier) : new Properties();
+        p.setProperty(mode.toLowerCase(), poids.toString());
+        // Écrit à la main plutôt qu'avec Properties.store, qui échapperait les '='
+        try (Writer out = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8)) {
+            if (commentaire != null) {
+                out.write("# " + commentaire + System.lineSeparator());
+            }
+            for (String cle : new TreeSet<>(p.stringPropertyNames())) {
+                out.write(cle + "=" + p.getProperty(cle) + System.lineSeparator());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int terme = 0; terme < NB_TERMES; terme++) {
+            if (terme > 0) {
+                sb.append(',');
+            }
+            sb.append(NOMS[terme]).append('=').append(poids[terme]);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PoidsHeuristique && Arrays.equals(poids, ((PoidsHeuristique) o).poids);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(poids);
+    }
+}
@@ -0,0 +1,191 @@
+package Network;
+
+import Modele.GenerateurTours;
+import Modele.JeuCompact;
+import Modele.ListeTours;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Réflexion de l'IA pendant le tour de l'adversaire.
+ *
+ * Quand l'adversaire commence son tour, un thread en arrière-plan cherche,
+ * pour ses réponses les plus probables, le tour que l'IA jouerait ensuite,
+ * et garde ces tours par position. Les réponses sont prises dans l'ordre de
+ * l'heuristique du point de vue de l'adversaire, sans recherche. Quand la
+ * vraie position arrive, {@link #arreter(JeuCompact)} arrête la réflexion et
+ * donne le tour déjà trouvé pour cette position, s'il y en a un : l'IA le joue
+ * sans attendre. Sinon la recherche normale profite de ce que la réflexion a
+ * laissé dans la table de transposition de IAminimax.
+ *
+ * Si la vraie position est justement celle que le thread cherche, sa
+ * recherche est menée à son terme au lieu d'être interrompue.
+ *
+ * Le moteur n'est pas partagé : il ne doit pas chercher ailleurs pendant la
+ * réflexion.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class Ponderation {
+
+    private final MoteurIA ia;
+    private final PoidsHeuristique poids = PoidsHeuristique.pourMode("MEDIUM");
+    private final Map<Long, Integer> reponses = new ConcurrentHashMap<>();
+    private Thread thread;
+    private long position; // position de l'adversaire de la réflexion en cours
+    private boolean arret;
+    private boolean interrompue;
+    private boolean enRecherche;
+    private long enCours; // position cherchée par le thread
+    private int trouvees;
+    private int utilisees;
+    private int manquees;
+
+    public Ponderation(MoteurIA ia) {
+        this.ia = ia;
+    }
+
+    /**
+     * Commence la réflexion sur les réponses de l'adversaire. Sans effet si
+     * elle est déjà commencée pour cette position
+     *
+     * @param adversaire la position au début du tour de l'adversaire
+     */
+    public void demarrer(JeuCompact adversaire) {
+        synchronized (this) {
+            if (thread != null && thread.isAlive() && position == adversaire.getHash()) {
+                return;
+            }
+        }
+        arreterThread(Long.MIN_VALUE);
+        JeuCompact copie = new JeuCompact(adversaire);
+        synchronized (this) {
+            reponses.clear();
+            position = adversaire.getHash();
+            arret = false;
+            interrompue = false;
+            thread = new Thread(() -> reflechir(copie), "Ponderation");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Arrête la réflexion sans attendre de position (fin de partie)
+     */
+    public void arreter() {
+        arreterThread(Long.MIN_VALUE);
+    }
+
+    /**
+     * Arrête la réflexion quand la position de l'IA est connue
+     *
+     * @param position la position au début du tour de l'IA
+     * @return le tour trouvé pendant la réflexion pour cette position, -1 s'il
+     * n'y en a pas
+     */
+    public int arreter(JeuCompact position) {
+        long h = position.getHash();
+        synchronized (this) {
+            if (thread == null) {
+                return -1;
+            }
+        }
+        arreterThread(h);
+        Integer tour = reponses.get(h);
+        synchronized (this) {
+            if (tour != null) {
+                utilisees++;
+            } else {
+                manquees++;
+            }
+        }
+        return tour == null ? -1 : tour;
+    }
+
+    // Arrête le thread (sans verrou : il en a besoin pour finir) ; la recherche de la position attendue, si elle est en
+    // cours, va jusqu'au bout
+    private void arreterThread(long attendue) {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            if (t == null) {
+                return;
+            }
+            arret = true;
+            if (!enRecherche || enCours != attendue) {
+                interrompue = true;
+            }
+        }
+        try {
+            if (interrompue()) {
+                // interrompre() peut arriver juste avant le début d'une recherche
+                while (t.isAlive()) {
+                    ia.interrompre();
+                    t.join(5);
+                }
+            } else {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            thread = null;
+        }
+    }
+
+    private synchronized boolean interrompue() {
+        return interrompue;
+    }
+
+    // Cherche le tour de l'IA après chaque réponse de l'adversaire, de la plus
+    // probable à la moins probable
+    private void reflechir(JeuCompact adversaire) {
+        ListeTours tours = new ListeTours();
+        new GenerateurTours().generer(adversaire, tours);
+        int joueur = adversaire.getJoueurCourant();
+        for (int i = 0; i < tours.taille(); i++) {
+            adversaire.makeMove(tours.get(i));
+            tours.setNote(i, IAminimax.evaluer(adversaire, joueur, poids));
+            adversaire.unmakeMove();
+        }
+        for (int i = 0; i < tours.taille(); i++) {
+            tours.choisirSuivant(i);
+            JeuCompact suivante = new JeuCompact(adversaire);
+            suivante.makeMove(tours.get(i));
+            if (suivante.gameOver(joueur) != 0 || suivante.gameOver(3 - joueur) != 0) {
+                continue; // la partie est finie, l'IA ne joue pas
+            }
+            long h = suivante.getHash();
+            synchronized (this) {
+                if (arret) {
+                    return;
+                }
+                enRecherche = true;
+                enCours = h;
+            }
+            int tour = ia.chercherTour(suivante);
+            synchronized (this) {
+                enRecherche = false;
+                if (!interrompue) {
+                    reponses.put(h, tour);
+                    trouvees++;
+                }
+                if (arret) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return un résumé des tours trouvés pendant la réflexion et de ceux qui
+     * ont servi
+     */
+    public synchronized String bilan() {
+        return trouvees + " positions cherchées d'avance, " + utilisees + " tours joués sans attendre, "
+                + manquees + " tours cherchés";
+    }
+}
@@ -0,0 +1,336 @@
+package Network;
+
+import Modele.JeuCompact;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Service d'IA partagé par toutes les parties contre l'ordinateur d'un même
+ * processus : chaque partie demande le tour à jouer dans une position, avec
+ * un budget de temps, et un nombre fixe d'ouvriers cherche les tours.
+ *
+ * Les demandes attendent dans une file par partie, et les ouvriers servent
+ * les parties à tour de rôle : une partie qui envoie beaucoup de demandes ne
+ * retarde pas les autres. La file est bornée ; au-delà, une demande est
+ * refusée tout de suite ({@link RejectedExecutionException}).
+ *
+ * Le budget d'une demande court depuis son arrivée : le temps passé dans la
+ * file est retiré du temps de recherche. Une demande servie après son
+ * échéance est quand même cherchée, mais le moteur n'en fait que le minimum
+ * (la profondeur 1 pour IAminimax), et elle est comptée en retard.
+ *
+ * Chaque ouvrier garde un moteur par difficulté et par couleur jouée d'une
+ * demande à l'autre. Les moteurs d'une même difficulté et d'une même couleur
+ * partagent, entre tous les ouvriers, une table de transposition (sans
+ * verrou) : les scores de la table sont du point de vue du joueur de l'IA.
+ * Chaque recherche vieillit toute la table partagée, et les entrées des
+ * autres ouvriers sont remplacées plus vite. Le livre d'ouvertures, la table
+ * de finales, les poids de l'heuristique et les clés de Zobrist sont lus une
+ * seule fois et partagés en lecture par tous les moteurs.
+ *
+ * Les moteurs du service cherchent sur un seul thread, quel que soit
+ * -Dttykm.ia.threads : le service a exactement un thread de recherche par
+ * ouvrier. Les tables prennent au plus 10 fois (5 difficultés, 2 couleurs)
+ * la taille d'une table, 160 Mo par défaut, quel que soit le nombre
+ * d'ouvriers.
+ *
+ * Le service partagé a -Dttykm.ia.service.threads ouvriers (un par
+ * processeur par défaut), une file de -Dttykm.ia.service.file demandes (256)
+ * et des tables de -Dttykm.ia.service.table Mo (16).
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class ServiceIA {
+
+    private static final int NB_MESURES = 1024; // latences gardées pour les percentiles
+    private static ServiceIA partage;
+
+    private final int capacite;
+    private final int tailleTableMo;
+    private final Thread[] ouvriers;
+    // Tables partagées par les ouvriers, clé difficulte * 2 + joueur - 1
+    private final Map<Integer, TableTransposition> tables = new HashMap<>();
+    // Files par partie, et ordre de passage des parties qui ont une demande
+    private final Map<String, ArrayDeque<Demande>> files = new HashMap<>();
+    private final ArrayDeque<String> tourniquet = new ArrayDeque<>();
+    private int enAttente;
+    private boolean ferme;
+
+    // Mesures, sous le verrou du service
+    private int enAttenteMax;
+    private long recues;
+    private long servies;
+    private long enRetard;
+    private long refusees;
+    private final long[] attentes = new long[NB_MESURES];
+    private final long[] durees = new long[NB_MESURES];
+    private int nbMesures;
+
+    private static final class Demande {
+        final String partie;
+        final JeuCompact position;
+        final int difficulte;
+        final long arrivee;
+        final long echeance;
+        final CompletableFuture<Integer> resultat = new CompletableFuture<>();
+
+        Demande(String partie, JeuCompact position, int difficulte, long arrivee, long echeance) {
+            this.partie = partie;
+            this.position = position;
+            this.difficulte = difficulte;
+            this.arrivee = arrivee;
+            this.echeance = echeance;
+        }
+    }
+
+    /**
+     * @param threads nombre d'ouvriers
+     * @param capacite nombre maximal de demandes en attente
+     * @param tailleTableMo taille de chaque table de transposition partagée
+     * (une par difficulté et par couleur)
+     */
+    public ServiceIA(int threads, int capacite, int tailleTableMo) {
+        this.capacite = Math.max(1, capacite);
+        this.tailleTableMo = tailleTableMo;
+        this.ouvriers = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < ouvriers.length; i++) {
+            ouvriers[i] = new Thread(this::travailler, "ServiceIA-" + i);
+            ouvriers[i].setDaemon(true);
+            ouvriers[i].start();
+        }
+    }
+
+    /**
+     * Service créé au premier appel, réglé par les propriétés système
+     */
+    public static synchronized ServiceIA partage() {
+        if (partage == null) {
+            partage = new ServiceIA(
+                    Integer.getInteger("ttykm.ia.service.threads", Runtime.getRuntime().availableProcessors()),
+                    Integer.getInteger("ttykm.ia.service.file", 256),
+                    Integer.getInteger("ttykm.ia.service.table", 16));
+        }
+        return partage;
+    }
+
+    /**
+     * Budget par tour de chaque difficulté, le même que celui d'une IA seule
+     */
+    public static long budgetParDefaut(int difficulte) {
+        if (difficulte >= 5) {
+            return 2000;
+        } else if (difficulte >= 3) {
+            return 1000;
+        }
+        return 500;
+    }
+
+    /**
+     * Demande le tour du joueur courant
+     *
+     * @param partie identifiant de la partie, pour le partage équitable
+     * @param position l'état, copié
+     * @param difficulte difficulté de 1 à 5
+     * @param budgetMs temps maximal avant la réponse, attente comprise
+     * @return le code du tour (voir {@link Modele.Tour}), -1 si le joueur
+     * courant n'a pas de tour ; en échec si la file est pleine ou le service
+     * fermé
+     */
+    public CompletableFuture<Integer> demander(String partie, JeuCompact position, int difficulte, long budgetMs) {
+        long maintenant = System.nanoTime();
+        Demande d = new Demande(partie, new JeuCompact(position), difficulte, maintenant, maintenant + budgetMs * 1000000L);
+        synchronized (this) {
+            if (ferme || enAttente >= capacite) {
+                refusees++;
+                d.resultat.completeExceptionally(new RejectedExecutionException(
+                        ferme ? "ServiceIA: service fermé" : "ServiceIA: file pleine (" + capacite + " demandes)"));
+                return d.resultat;
+            }
+            ArrayDeque<Demande> file = files.computeIfAbsent(partie, p -> new ArrayDeque<>());
+            if (file.isEmpty()) {
+                tourniquet.addLast(partie);
+            }
+            file.addLast(d);
+            enAttente++;
+            recues++;
+            enAttenteMax = Math.max(enAttenteMax, enAttente);
+            notify();
+        }
+        return d.resultat;
+    }
+
+    /**
+     * @return le nombre de demandes qui attendent un ouvrier
+     */
+    public synchronized int getEnAttente() {
+        return enAttente;
+    }
+
+    /**
+     * Arrête les ouvriers une fois leur recherche en cours finie ; les
+     * demandes en attente sont refusées
+     */
+    public void fermer() {
+        synchronized (this) {
+            ferme = true;
+            for (ArrayDeque<Demande> file : files.values()) {
+                for (Demande d : file) {
+                    d.resultat.completeExceptionally(new RejectedExecutionException("ServiceIA: service fermé"));
+                }
+            }
+            files.clear();
+            tourniquet.clear();
+            enAttente = 0;
+            notifyAll();
+        }
+        for (Thread ouvrier : ouvriers) {
+            try {
+                ouvrier.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Prochaine demande : la plus ancienne de la partie suivante du tourniquet
+    private synchronized Demande prendre() throws InterruptedException {
+        while (tourniquet.isEmpty() && !ferme) {
+            wait();
+        }
+        if (ferme) {
+            return null;
+        }
+        String partie = tourniquet.pollFirst();
+        ArrayDeque<Demande> file = files.get(partie);
+        Demande d = file.pollFirst();
+        if (file.isEmpty()) {
+            files.remove(partie);
+        } else {
+            tourniquet.addLast(partie);
+        }
+        enAttente--;
+        return d;
+    }
+
+    // Table partagée des moteurs de cette difficulté (ramenée entre 1 et 5) et de ce joueur
+    private TableTransposition table(int difficulte, int joueur) {
+        int cle = Math.max(1, Math.min(5, difficulte)) * 2 + joueur - 1;
+        synchronized (tables) {
+            return tables.computeIfAbsent(cle, c -> new TableTransposition(tailleTableMo));
+        }
+    }
+
+    private void travailler() {
+        // Un moteur par difficulté (1 à 5) et par joueur courant : clé difficulte * 2 + joueur - 1
+        Map<Integer, MoteurIA> moteurs = new HashMap<>();
+        try {
+            Demande d;
+            while ((d = prendre()) != null) {
+                if (d.resultat.isDone()) {
+                    continue; // annulée par la partie
+                }
+                long debut = System.nanoTime();
+                long resteMs = (d.echeance - debut) / 1000000L;
+                int difficulte = d.difficulte;
+                int joueur = d.position.getJoueurCourant();
+                MoteurIA ia = moteurs.computeIfAbsent(difficulte * 2 + joueur - 1, cle -> {
+                    MoteurIA m = MoteurIA.creer(difficulte, null, table(difficulte, joueur));
+                    m.setThreads(1);
+                    m.setVerbeux(false);
+                    return m;
+                });
+                // La première itération est toujours finie : sans temps, la
+                // recherche s'arrête à la profondeur 1
+                ia.setTemps(Math.max(1, resteMs));
+                try {
+                    d.resultat.complete(ia.chercherTour(d.position));
+                } catch (RuntimeException e) {
+                    System.err.println("ServiceIA: erreur pendant la recherche de " + d.partie + " : " + e);
+                    d.resultat.completeExceptionally(e);
+                }
+                mesurer(d, debut, System.nanoTime());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void mesurer(Demande d, long debut, long fin) {
+        servies++;
+        if (fin > d.echeance) {
+            enRetard++;
+        }
+        int i = nbMesures++ % NB_MESURES;
+        attentes[i] = debut - d.arrivee;
+        durees[i] = fin - d.arrivee;
+    }
+
+    /**
+     * @return les mesures du service depuis son démarrage ; les percentiles
+     * portent sur les {@value #NB_MESURES} dernières demandes servies
+     */
+    public synchronized Mesures mesures() {
+        int n = Math.min(nbMesures, NB_MESURES);
+        long[] a = Arrays.copyOf(attentes, n);
+        long[] t = Arrays.copyOf(durees, n);
+        Arrays.sort(a);
+        Arrays.sort(t);
+        return new Mesures(enAttente, enAttenteMax, recues, servies, enRetard, refusees,
+                percentile(a, 0.50), percentile(a, 0.99), percentile(t, 0.50), percentile(t, 0.90), percentile(t, 0.99));
+    }
+
+    private static double percentile(long[] tries, double q) {
+        if (tries.length == 0) {
+            return Double.NaN;
+        }
+        int i = (int) Math.ceil(q * tries.length) - 1;
+        return tries[Math.max(0, Math.min(tries.length - 1, i))] / 1e6;
+    }
+
+    /**
+     * Mesures du service à un instant, latences en millisecondes depuis
+     * l'arrivée des demandes
+     */
+    public static final class Mesures {
+        public final int enAttente;
+        public final int enAttenteMax;
+        public final long recues;
+        public final long servies;
+        public final long enRetard;
+        public final long refusees;
+        public final double attenteP50;
+        public final double attenteP99;
+        public final double latenceP50;
+        public final double latenceP90;
+        public final double latenceP99;
+
+        Mesures(int enAttente, int enAttenteMax, long recues, long servies, long enRetard, long refusees,
+                double attenteP50, double attenteP99, double latenceP50, double latenceP90, double latenceP99) {
+            this.enAttente = enAttente;
+            this.enAttenteMax = enAttenteMax;
+            this.recues = recues;
+            this.servies = servies;
+            this.enRetard = enRetard;
+            this.refusees = refusees;
+            this.attenteP50 = attenteP50;
+            this.attenteP99 = attenteP99;
+            this.latenceP50 = latenceP50;
+            this.latenceP90 = latenceP90;
+            this.latenceP99 = latenceP99;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("file %d (max %d), %d demandes, %d servies, %d en retard, %d refusées, "
+                    + "attente p50 %.1f ms p99 %.1f ms, latence p50 %.1f ms p90 %.1f ms p99 %.1f ms",
+                    enAttente, enAttenteMax, recues, servies, enRetard, refusees,
+                    attenteP50, attenteP99, latenceP50, latenceP90, latenceP99);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package Network;
+
+import Modele.Tour;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Mesures d'une recherche de IAminimax (un coupIA ou un chercherTour) : où
+ * part le temps, et ce que font la table de transposition, l'ordre des tours
+ * et les réductions.
+ *
+ * Chaque thread de recherche compte dans son propre objet, avec de simples
+ * compteurs, sans verrou ni variable partagée ; les compteurs des threads sont
+ * additionnés à la fin de la recherche. Les noeuds de quiescence font partie
+ * des noeuds. Une feuille est une position évaluée par l'heuristique au bout
+ * de la recherche (stand pat de la quiescence compris). Une coupure est
+ * comptée au rang, dans la liste triée, du tour qui la provoque : une
+ * recherche bien ordonnée coupe surtout au rang 0.
+ *
+ * {@link IAminimax#getStats()} donne les mesures de la dernière recherche.
+ * Avec -Dttykm.ia.stats=true, chaque recherche les écrit aussi sur une ligne
+ * JSON ({@link #toJson()}).
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public final class StatsRecherche {
+
+    public static final int RANGS = 8; // rangs des coupures, le dernier regroupe les suivants
+
+    /**
+     * Une itération finie de l'approfondissement itératif
+     */
+    public static final class Iteration {
+        public final int profondeur;
+        public final int score;
+        public final long tempsMs; // depuis le début de la recherche
+        public final long noeuds; // depuis le début de la recherche, tous threads confondus
+
+        Iteration(int profondeur, int score, long tempsMs, long noeuds) {
+            this.profondeur = profondeur;
+            this.score = score;
+            this.tempsMs = tempsMs;
+            this.noeuds = noeuds;
+        }
+    }
+
+    // Compteurs, tenus par un seul thread pendant la recherche
+    long noeuds;
+    long noeudsQuiescence;
+    long feuilles;
+    final long[] coupures = new long[RANGS];
+    long sondesTable;
+    long succesTable; // la position est dans la table
+    long coupuresTable; // l'entrée suffit, sans chercher les tours
+    long noeudsInternes; // noeuds dont les tours ont été générés
+    long toursGeneres;
+    long coupsNuls;
+    long coupuresCoupNul; // coups nuls confirmés par la vérification
+    long reductionsLMR;
+    long recherchesLMR; // tours réduits recherchés à la profondeur normale
+    int profondeurSelective; // demi-coups du plus long chemin, quiescence comprise
+
+    // Résultat, rempli une fois la recherche finie
+    private String origine = "recherche"; // "recherche", "livre" ou "finales"
+    private String mode = "";
+    private int threads = 1;
+    private int tour = -1;
+    private int score;
+    private long tempsMs;
+    private final List<Iteration> iterations = new ArrayList<>();
+
+    StatsRecherche() {
+    }
+
+    StatsRecherche(String mode, int threads) {
+        this.mode = mode;
+        this.threads = threads;
+    }
+
+    // Remet les compteurs d'un thread à zéro avant une recherche
+    void vider() {
+        noeuds = 0;
+        noeudsQuiescence = 0;
+        feuilles = 0;
+        java.util.Arrays.fill(coupures, 0);
+        sondesTable = 0;
+        succesTable = 0;
+        coupuresTable = 0;
+        noeudsInternes = 0;
+        toursGeneres = 0;
+        coupsNuls = 0;
+        coupuresCoupNul = 0;
+        reductionsLMR = 0;
+        recherchesLMR = 0;
+        profondeurSelective = 0;
+    }
+
+    // Ajoute les compteurs d'un thread
+    void ajouter(StatsRecherche thread) {
+        noeuds += thread.noeuds;
+        noeudsQuiescence += thread.noeudsQuiescence;
+        feuilles += thread.feuilles;
+        for (int i = 0; i < RANGS; i++) {
+            coupures[i] += thread.coupures[i];
+        }
+        sondesTable += thread.sondesTable;
+        succesTable += thread.succesTable;
+        coupuresTable += thread.coupuresTable;
+        noeudsInternes += thread.noeudsInternes;
+        toursGeneres += thread.toursGeneres;
+        coupsNuls += thread.coupsNuls;
+        coupuresCoupNul += thread.coupuresCoupNul;
+        reductionsLMR += thread.reductionsLMR;
+        recherchesLMR += thread.recherchesLMR;
+        profondeurSelective = Math.max(profondeurSelective, thread.profondeurSelective);
+    }
+
+    void iteration(int profondeur, int score, long tempsMs, long noeuds) {
+        iterations.add(new Iteration(profondeur, score, tempsMs, noeuds));
+    }
+
+    void terminer(String origine, int tour, int score, long tempsMs) {
+        this.origine = origine;
+        this.tour = tour;
+        this.score = score;
+        this.tempsMs = tempsMs;
+    }
+
+    // Accesseurs
+
+    /**
+     * @return "recherche", ou "livre" et "finales" pour un tour joué sans
+     * recherche
+     */
+    public String getOrigine() {
+        return origine;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return le code du tour choisi (voir {@link Tour}), -1 s'il n'y en a pas
+     */
+    public int getTour() {
+        return tour;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public long getTempsMs() {
+        return tempsMs;
+    }
+
+    public long getNoeuds() {
+        return noeuds;
+    }
+
+    public long getNoeudsQuiescence() {
+        return noeudsQuiescence;
+    }
+
+    public long getFeuilles() {
+        return feuilles;
+    }
+
+    /**
+     * @return le nombre de coupures provoquées par le tour de ce rang dans la
+     * liste triée ; le dernier rang compte aussi tous les suivants
+     */
+    public long getCoupures(int rang) {
+        return coupures[Math.min(rang, RANGS - 1)];
+    }
+
+    public long getCoupures() {
+        long total = 0;
+        for (long c : coupures) {
+            total += c;
+        }
+        return total;
+    }
+
+    public long getSondesTable() {
+        return sondesTable;
+    }
+
+    public long getSuccesTable() {
+        return succesTable;
+    }
+
+    public long getCoupuresTable() {
+        return coupuresTable;
+    }
+
+    public long getCoupsNuls() {
+        return coupsNuls;
+    }
+
+    public long getCoupuresCoupNul() {
+        return coupuresCoupNul;
+    }
+
+    public long getReductionsLMR() {
+        return reductionsLMR;
+    }
+
+    public long getRecherchesLMR() {
+        return recherchesLMR;
+    }
+
+    /**
+     * @return la profondeur de la dernière itération finie, 0 sans recherche
+     */
+    public int getProfondeur() {
+        return iterations.isEmpty() ? 0 : iterations.get(iterations.size() - 1).profondeur;
+    }
+
+    public int getProfondeurSelective() {
+        return profondeurSelective;
+    }
+
+    public List<Iteration> getIterations() {
+        return Collections.unmodifiableList(iterations);
+    }
+
+    /**
+     * @return le nombre moyen de tours des noeuds dont les tours ont été
+     * générés (quiescence comprise)
+     */
+    public double getFacteurBranchement() {
+        return noeudsInternes == 0 ? 0 : (double) toursGeneres / noeudsInternes;
+    }
+
+    /**
+     * @return le facteur de branchement effectif : noeuds de la dernière
+     * itération divisés par ceux de la précédente, 0 avec moins de deux
+     * itérations
+     */
+    public double getFacteurEffectif() {
+        int n = iterations.size();
+        if (n < 2) {
+            return 0;
+        }
+        long derniere = iterations.get(n - 1).noeuds - iterations.get(n - 2).noeuds;
+        long precedente = iterations.get(n - 2).noeuds - (n >= 3 ? iterations.get(n - 3).noeuds : 0);
+        return precedente == 0 ? 0 : (double) derniere / precedente;
+    }
+
+    /**
+     * @return la part des sondes qui ont trouvé la position dans la table
+     */
+    public double getTauxSuccesTable() {
+        return sondesTable == 0 ? 0 : (double) succesTable / sondesTable;
+    }
+
+    /**
+     * @return les mesures sur une ligne JSON, sans retour à la ligne
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("{\"origine\":\"").append(origine).append('"');
+        sb.append(",\"mode\":\"").append(mode).append('"');
+        sb.append(",\"threads\":").append(threads);
+        sb.append(",\"tour\":\"").append(tour < 0 ? "" : Tour.toString(tour)).append('"');
+        sb.append(",\"score\":").append(score);
+        sb.append(",\"temps_ms\":").append(tempsMs);
+        sb.append(",\"profondeur\":").append(getProfondeur());
+        sb.append(",\"profondeur_selective\":").append(profondeurSelective);
+        sb.append(",\"noeuds\":").append(noeuds);
+        sb.append(",\"noeuds_quiescence\":").append(noeudsQuiescence);
+        sb.append(",\"feuilles\":").append(feuilles);
+        sb.append(",\"coupures\":[");
+        for (int i = 0; i < RANGS; i++) {
+            sb.append(i == 0 ? "" : ",").append(coupures[i]);
+        }
+        sb.append(']');
+        sb.append(",\"table\":{\"sondes\":").append(sondesTable)
+                .append(",\"succes\":").append(succesTable)
+                .append(",\"coupures\":").append(coupuresTable).append('}');
+        sb.append(",\"coup_nul\":{\"essais\":").append(coupsNuls)
+                .append(",\"coupures\":").append(coupuresCoupNul).append('}');
+        sb.append(",\"lmr\":{\"reductions\":").append(reductionsLMR)
+                .append(",\"recherches\":").append(recherchesLMR).append('}');
+        sb.append(",\"branchement\":").append(String.format(java.util.Locale.ROOT, "%.2f", getFacteurBranchement()));
+        sb.append(",\"branchement_effectif\":").append(String.format(java.util.Locale.ROOT, "%.2f", getFacteurEffectif()));
+        sb.append(",\"iterations\":[");
+        for (int i = 0; i < iterations.size(); i++) {
+            Iteration it = iterations.get(i);
+            sb.append(i == 0 ? "" : ",").append("{\"profondeur\":").append(it.profondeur)
+                    .append(",\"score\":").append(it.score)
+                    .append(",\"temps_ms\":").append(it.tempsMs)
+                    .append(",\"noeuds\":").append(it.noeuds).append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, profondeur %d (%d), %d noeuds dont %d en quiescence, %d feuilles, "
+                + "table %d/%d, coupures au 1er tour %.0f %%, branchement %.1f (effectif %.1f), %d ms",
+                origine, getProfondeur(), profondeurSelective, noeuds, noeudsQuiescence, feuilles,
+                succesTable, sondesTable, getCoupures() == 0 ? 0.0 : 100.0 * coupures[0] / getCoupures(),
+                getFacteurBranchement(), getFacteurEffectif(), tempsMs);
+    }
+}
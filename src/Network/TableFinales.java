@@ -0,0 +1,315 @@
+package Network;
+
+import Modele.JeuCompact;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Table de finales : la valeur exacte des positions où chaque joueur a
+ * deux pièces, sur deux plateaux différents (avec une seule pièce, ou deux
+ * sur le même plateau, la partie est déjà finie), et au plus clonesMax
+ * clones en réserve. La table est calculée à l'avance par analyse
+ * rétrograde (Banc.GenererFinales).
+ *
+ * Une position est repérée par un indice : clones des deux joueurs, paires de
+ * cases des deux joueurs (768 paires sur deux plateaux différents pour chacun,
+ * sans case commune), prochain plateau des deux joueurs et joueur courant.
+ * Une position et sa transposée (voir {@link JeuCompact#transposer()}) ont la
+ * même valeur : les paires des deux joueurs sont rangées à une symétrie près,
+ * ce qui divise la table par deux. Sa valeur, du point de vue du
+ * joueur courant, est codée sur quelques bits : 0 si aucun joueur ne peut
+ * forcer la victoire (ou si la table ne le sait pas, quand un clone fait
+ * sortir de la table), 2n - 1 pour un gain en n tours, 2n pour une perte en n
+ * tours. Les valeurs sont rangées bout à bout, sans octet perdu, après un
+ * en-tête (magique, version, bits par valeur, clones, nombre de positions).
+ *
+ * Le fichier est projeté en mémoire en lecture seule. La table par défaut est
+ * lue dans -Dttykm.ia.finales (res/IA/finales.bin par défaut), si elle existe.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public final class TableFinales {
+
+    public static final int NB_PAIRES = 768; // paires de cases sur deux plateaux différents
+    public static final int INCONNUE = 0;
+
+    private static final int MAGIQUE = 0x46494E41; // "FINA"
+    private static final int VERSION = 2; // 2 : positions rangées à une symétrie près
+    private static final int ENTETE = 24;
+
+    public static final String FICHIER_FINALES = System.getProperty("ttykm.ia.finales", "res/IA/finales.bin");
+    private static TableFinales parDefaut;
+    private static boolean parDefautLue;
+
+    // Rang de chaque paire de cases (a < b), -1 si elles sont sur le même plateau
+    private static final int[] RANG = new int[JeuCompact.NB_POSITIONS * JeuCompact.NB_POSITIONS];
+    private static final long[] PAIRES = new long[NB_PAIRES];
+    // Classe de chaque couple de paires (blancs * NB_PAIRES + noirs) à la
+    // transposition près, -1 si les deux joueurs ont une case commune ; et
+    // couple qui représente chaque classe (le plus petit des deux)
+    private static final int[] CLASSE = new int[NB_PAIRES * NB_PAIRES];
+    private static final int[] REPRESENTANT;
+    public static final int NB_CLASSES;
+
+    static {
+        java.util.Arrays.fill(RANG, -1);
+        int rang = 0;
+        for (int a = 0; a < JeuCompact.NB_POSITIONS; a++) {
+            for (int b = a + 1; b < JeuCompact.NB_POSITIONS; b++) {
+                if (JeuCompact.plateauDe(a) != JeuCompact.plateauDe(b)) {
+                    RANG[a * JeuCompact.NB_POSITIONS + b] = rang;
+                    PAIRES[rang] = (1L << a) | (1L << b);
+                    rang++;
+                }
+            }
+        }
+        int[] transposee = new int[NB_PAIRES];
+        for (int r = 0; r < NB_PAIRES; r++) {
+            transposee[r] = rang(JeuCompact.transposer(PAIRES[r]));
+        }
+        int[] representants = new int[CLASSE.length];
+        int classes = 0;
+        for (int couple = 0; couple < CLASSE.length; couple++) {
+            int blancs = couple / NB_PAIRES;
+            int noirs = couple % NB_PAIRES;
+            int image = transposee[blancs] * NB_PAIRES + transposee[noirs];
+            if ((PAIRES[blancs] & PAIRES[noirs]) != 0) {
+                CLASSE[couple] = -1;
+            } else if (image < couple) {
+                CLASSE[couple] = CLASSE[image];
+            } else {
+                representants[classes] = couple;
+                CLASSE[couple] = classes++;
+            }
+        }
+        REPRESENTANT = java.util.Arrays.copyOf(representants, classes);
+        NB_CLASSES = classes;
+    }
+
+    private final MappedByteBuffer donnees;
+    private final int bits;
+    private final int clonesMax;
+    private final long positions;
+
+    private TableFinales(MappedByteBuffer donnees, int bits, int clonesMax, long positions) {
+        this.donnees = donnees;
+        this.bits = bits;
+        this.clonesMax = clonesMax;
+        this.positions = positions;
+    }
+
+    // Codage des valeurs
+
+    public static int gain(int tours) {
+        return 2 * tours - 1;
+    }
+
+    public static int perte(int tours) {
+        return 2 * tours;
+    }
+
+    public static boolean estGain(int valeur) {
+        return (valeur & 1) != 0;
+    }
+
+    /**
+     * @return le nombre de tours avant la fin de la partie, 0 si la valeur
+     * est inconnue
+     */
+    public static int tours(int valeur) {
+        return (valeur + 1) / 2;
+    }
+
+    // Indices
+
+    /**
+     * @return le nombre de positions d'une table
+     */
+    public static long taille(int clonesMax) {
+        return (long) (clonesMax + 1) * (clonesMax + 1) * NB_CLASSES * 9 * 2;
+    }
+
+    /**
+     * Indice d'une position dans une table
+     *
+     * @return l'indice, -1 si la position n'est pas dans la table
+     */
+    public static long indice(JeuCompact etat, int clonesMax) {
+        int blancs = rang(etat.getBlancs());
+        int noirs = rang(etat.getNoirs());
+        int clones1 = etat.getNbClones(1);
+        int clones2 = etat.getNbClones(2);
+        if (blancs < 0 || noirs < 0 || clones1 > clonesMax || clones2 > clonesMax || etat.getEtapeCoup() != 0) {
+            return -1;
+        }
+        int classe = CLASSE[blancs * NB_PAIRES + noirs];
+        if (classe < 0) {
+            return -1;
+        }
+        long i = clones1 * (clonesMax + 1) + clones2;
+        i = i * NB_CLASSES + classe;
+        i = i * 3 + etat.getProchainPlateau(1);
+        i = i * 3 + etat.getProchainPlateau(2);
+        return i * 2 + etat.getJoueurCourant() - 1;
+    }
+
+    /**
+     * Construit la position d'un indice, dans le sens du représentant de sa
+     * classe
+     *
+     * @return faux si l'indice ne correspond à aucune position
+     */
+    public static boolean position(long indice, int clonesMax, JeuCompact etat) {
+        int joueur = (int) (indice % 2) + 1;
+        indice /= 2;
+        int prochain2 = (int) (indice % 3);
+        indice /= 3;
+        int prochain1 = (int) (indice % 3);
+        indice /= 3;
+        int couple = REPRESENTANT[(int) (indice % NB_CLASSES)];
+        indice /= NB_CLASSES;
+        long blancs = PAIRES[couple / NB_PAIRES];
+        long noirs = PAIRES[couple % NB_PAIRES];
+        if ((blancs & noirs) != 0) {
+            return false;
+        }
+        etat.setPieces(blancs, noirs);
+        etat.setNbClones(1, (int) (indice / (clonesMax + 1)));
+        etat.setNbClones(2, (int) (indice % (clonesMax + 1)));
+        etat.setProchainPlateau(1, prochain1);
+        etat.setProchainPlateau(2, prochain2);
+        etat.setJoueurCourant(joueur);
+        etat.setEtapeCoup(0);
+        return true;
+    }
+
+    // Rang des deux pièces d'un joueur, -1 s'il n'en a pas exactement deux sur
+    // deux plateaux différents
+    private static int rang(long pieces) {
+        if (Long.bitCount(pieces) != 2) {
+            return -1;
+        }
+        int a = Long.numberOfTrailingZeros(pieces);
+        int b = 63 - Long.numberOfLeadingZeros(pieces);
+        return RANG[a * JeuCompact.NB_POSITIONS + b];
+    }
+
+    // Fichier
+
+    /**
+     * Projette une table en mémoire
+     *
+     * @throws IOException si le fichier ne peut pas être lu ou n'est pas une
+     * table
+     */
+    public static TableFinales ouvrir(Path fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            MappedByteBuffer donnees = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (canal.size() < ENTETE || donnees.getInt(0) != MAGIQUE || donnees.getInt(4) != VERSION) {
+                throw new IOException("TableFinales: " + fichier + " n'est pas une table (version " + VERSION + ")");
+            }
+            int bits = donnees.getInt(8);
+            int clonesMax = donnees.getInt(12);
+            long positions = donnees.getLong(16);
+            if (positions != taille(clonesMax) || ENTETE + mots(positions, bits) * 8 != canal.size()) {
+                throw new IOException("TableFinales: taille de " + fichier + " incohérente");
+            }
+            return new TableFinales(donnees, bits, clonesMax, positions);
+        }
+    }
+
+    /**
+     * Table lue une fois au démarrage dans le fichier par défaut
+     *
+     * @return la table, null s'il n'y en a pas
+     */
+    public static synchronized TableFinales parDefaut() {
+        if (!parDefautLue) {
+            parDefautLue = true;
+            Path fichier = Paths.get(FICHIER_FINALES);
+            if (Files.exists(fichier)) {
+                try {
+                    parDefaut = ouvrir(fichier);
+                    System.out.println("Table de finales : " + parDefaut.positions + " positions lues dans " + fichier);
+                } catch (IOException e) {
+                    System.err.println("Impossible de lire la table de finales " + fichier + " : " + e.getMessage());
+                }
+            }
+        }
+        return parDefaut;
+    }
+
+    /**
+     * Valeur d'une position pour le joueur courant
+     *
+     * @return la valeur codée (voir {@link #gain}, {@link #perte}), 0 si
+     * aucun joueur ne peut forcer la victoire, -1 si la position n'est pas
+     * dans la table
+     */
+    public int sonder(JeuCompact etat) {
+        long i = indice(etat, clonesMax);
+        if (i < 0) {
+            return -1;
+        }
+        return lire(i);
+    }
+
+    private int lire(long i) {
+        long bit = i * bits;
+        int mot = (int) (bit >>> 6);
+        int decalage = (int) (bit & 63);
+        long valeur = donnees.getLong(ENTETE + mot * 8) >>> decalage;
+        if (decalage + bits > 64) {
+            valeur |= donnees.getLong(ENTETE + (mot + 1) * 8) << (64 - decalage);
+        }
+        return (int) (valeur & ((1L << bits) - 1));
+    }
+
+    private static long mots(long positions, int bits) {
+        return (positions * bits + 63) / 64;
+    }
+
+    /**
+     * Écrit une table, chaque valeur sur le plus petit nombre de bits qui
+     * suffit
+     *
+     * @param valeurs valeur de chaque indice
+     */
+    public static void ecrire(Path fichier, byte[] valeurs, int clonesMax) throws IOException {
+        int max = 1;
+        for (byte v : valeurs) {
+            max = Math.max(max, v & 0xFF);
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(max);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(fichier)))) {
+            out.writeInt(MAGIQUE);
+            out.writeInt(VERSION);
+            out.writeInt(bits);
+            out.writeInt(clonesMax);
+            out.writeLong(valeurs.length);
+            long mot = 0;
+            int rempli = 0;
+            for (byte v : valeurs) {
+                long valeur = v & 0xFF;
+                mot |= valeur << rempli;
+                rempli += bits;
+                if (rempli >= 64) {
+                    out.writeLong(mot);
+                    rempli -= 64;
+                    mot = rempli == 0 ? 0 : valeur >>> (bits - rempli);
+                }
+            }
+            if (rempli > 0) {
+                out.writeLong(mot);
+            }
+        }
+    }
+}
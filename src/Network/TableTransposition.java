@@ -0,0 +1,155 @@
+package Network;
+
+import java.util.Arrays;
+
+/**
+ * Table de transposition de taille fixe pour la recherche de l'IA.
+ *
+ * Les entrées sont rangées dans deux tableaux de long préalloués : le premier
+ * contient hash ^ donnees, le second les données compactées (score, meilleur
+ * tour, profondeur restante, type de borne, génération). Une entrée n'est
+ * acceptée que si le XOR des deux mots redonne le hash cherché, ce qui permet
+ * à plusieurs threads de lire et d'écrire sans verrou : une entrée écrite à
+ * moitié par un autre thread est simplement ignorée.
+ *
+ * Chaque hash correspond à un groupe de deux entrées : la première est gardée
+ * tant qu'elle est plus profonde et de la recherche courante, la seconde est
+ * toujours remplacée.
+ *
+ * @author The MACKYZ Protocol
+ * @version 1.0
+ */
+public class TableTransposition {
+
+    public static final int EXACTE = 0; // score exact
+    public static final int BORNE_INF = 1; // le vrai score est >= score
+    public static final int BORNE_SUP = 2; // le vrai score est <= score
+
+    public static final int AUCUN_TOUR = 0xFFFF;
+
+    // Disposition des données d'une entrée
+    private static final int DECALAGE_TOUR = 24; // 16 bits
+    private static final int DECALAGE_PROFONDEUR = 40; // 8 bits
+    private static final int DECALAGE_BORNE = 48; // 2 bits
+    private static final int DECALAGE_GENERATION = 50; // 8 bits
+    private static final long OCCUPEE = 1L << 58;
+
+    private final long[] cles;
+    private final long[] donnees;
+    private final int masque;
+    private volatile int generation = 0;
+
+    /**
+     * Crée une table occupant au plus la taille donnée
+     *
+     * @param tailleMo taille en mégaoctets (16 octets par entrée)
+     */
+    public TableTransposition(int tailleMo) {
+        long entrees = Math.max(2L, ((long) Math.max(1, tailleMo) << 20) / 16);
+        int taille = Integer.highestOneBit((int) Math.min(entrees, 1 << 30));
+        this.cles = new long[taille];
+        this.donnees = new long[taille];
+        this.masque = taille - 1;
+    }
+
+    public int getNbEntrees() {
+        return cles.length;
+    }
+
+    /**
+     * Commence une nouvelle recherche : les entrées des recherches précédentes
+     * deviennent remplaçables en priorité
+     */
+    public void nouvelleRecherche() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Efface toutes les entrées
+     */
+    public void vider() {
+        Arrays.fill(cles, 0L);
+        Arrays.fill(donnees, 0L);
+    }
+
+    /**
+     * Cherche une position dans la table
+     *
+     * @param hash hash de Zobrist de la position
+     * @return les données de l'entrée, 0 si la position est absente
+     */
+    public long sonder(long hash) {
+        int i = (int) hash & masque & ~1;
+        for (int k = i; k <= i + 1; k++) {
+            long d = donnees[k];
+            if (d != 0 && (cles[k] ^ d) == hash) {
+                return d;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Enregistre le résultat de la recherche d'une position
+     *
+     * @param hash hash de Zobrist de la position
+     * @param profondeur profondeur restante de la recherche
+     * @param score score trouvé
+     * @param borne EXACTE, BORNE_INF ou BORNE_SUP
+     * @param tour code du meilleur tour, AUCUN_TOUR s'il n'y en a pas
+     */
+    public void enregistrer(long hash, int profondeur, int score, int borne, int tour) {
+        int i = (int) hash & masque & ~1;
+        int gen = generation;
+        int cible;
+
+        long d0 = donnees[i];
+        long d1 = donnees[i + 1];
+        if (d0 != 0 && (cles[i] ^ d0) == hash) {
+            cible = i;
+        } else if (d1 != 0 && (cles[i + 1] ^ d1) == hash) {
+            cible = i + 1;
+        } else if (d0 == 0 || generation(d0) != gen || profondeur >= profondeur(d0)) {
+            cible = i;
+        } else {
+            cible = i + 1;
+        }
+
+        long ancienne = donnees[cible];
+        if (tour == AUCUN_TOUR && ancienne != 0 && (cles[cible] ^ ancienne) == hash) {
+            // On garde le meilleur tour connu de la position
+            tour = tour(ancienne);
+        }
+
+        long d = (score & 0xFFFFFFL)
+                | ((long) (tour & 0xFFFF) << DECALAGE_TOUR)
+                | ((long) Math.min(profondeur, 0xFF) << DECALAGE_PROFONDEUR)
+                | ((long) borne << DECALAGE_BORNE)
+                | ((long) gen << DECALAGE_GENERATION)
+                | OCCUPEE;
+        donnees[cible] = d;
+        cles[cible] = hash ^ d;
+    }
+
+    // Lecture des données d'une entrée
+
+    public static int score(long donnees) {
+        return ((int) (donnees << 8)) >> 8; // 24 bits signés
+    }
+
+    public static int tour(long donnees) {
+        return (int) (donnees >>> DECALAGE_TOUR) & 0xFFFF;
+    }
+
+    public static int profondeur(long donnees) {
+        return (int) (donnees >>> DECALAGE_PROFONDEUR) & 0xFF;
+    }
+
+    public static int borne(long donnees) {
+        return (int) (donnees >>> DECALAGE_BORNE) & 3;
+    }
+
+    public static int generation(long donnees) {
+        return (int) (donnees >>> DECALAGE_GENERATION) & 0xFF;
+    }
+}